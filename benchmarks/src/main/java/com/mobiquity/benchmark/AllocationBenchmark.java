@@ -0,0 +1,79 @@
+package com.mobiquity.benchmark;
+
+import com.mobiquity.api.ItemBatch;
+import com.mobiquity.exception.APIException;
+import com.mobiquity.packer.Packer;
+import com.mobiquity.packer.PackerConfig;
+import com.mobiquity.solver.PackingSolver;
+import com.mobiquity.utils.AlgoUtils;
+import com.mobiquity.utils.FunctionalUtils.AmountPredicate;
+import com.mobiquity.utils.FunctionalUtils.DecimalPredicate;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Steady-state allocation per line, meant to be run with the GC profiler: {@code gc.alloc.rate.norm} is
+ * reported in bytes per line. {@code solve} covers the parse, pre-filter and solve stages, {@code pack}
+ * adds result formatting. Shapes pick the solver: {@code bitmask} for 15 items, {@code dp} for 25 items
+ * in hundredths, {@code mitm} for 30 items in ten-thousandths.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AllocationBenchmark {
+    static final int LINES = 256;
+
+    @Param({"bitmask", "dp", "mitm"})
+    String shape;
+
+    List<String> lines;
+    PackerConfig config;
+    PackingSolver solver;
+    DecimalPredicate validateMaxWeight;
+    DecimalPredicate validateMaxPrice;
+    AmountPredicate validateMaxAmount;
+    ItemBatch batch;
+
+    @Setup
+    public void setUp() {
+        int items = "bitmask".equals(shape) ? 15 : "dp".equals(shape) ? 25 : 30;
+        int decimals = "mitm".equals(shape) ? 4 : 2;
+        Random random = new Random(Lines.SEED);
+        lines = IntStream.range(0, LINES)
+                .mapToObj(i -> Lines.line(random, items, 1 + random.nextInt(100), decimals))
+                .collect(Collectors.toList());
+        config = PackerConfig.builder().maxItems(40).build();
+        solver = config.getSolver();
+        validateMaxWeight = config.validateMaxWeight();
+        validateMaxPrice = config.validateMaxPrice();
+        validateMaxAmount = config.validateMaxAmount();
+        batch = new ItemBatch();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public int solve() throws APIException {
+        int found = 0;
+        for (String line : lines) {
+            AlgoUtils.readBatch(line, batch.reset(), validateMaxWeight, validateMaxPrice, validateMaxAmount);
+            found += solver.solve(batch);
+        }
+        return found;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public List<String> pack() throws APIException {
+        return Packer.packLines(lines, config);
+    }
+}
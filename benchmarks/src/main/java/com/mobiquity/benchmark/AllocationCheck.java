@@ -0,0 +1,93 @@
+package com.mobiquity.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Runs {@link AllocationBenchmark} with the GC profiler and fails when a steady-state line allocates more
+ * than allowed: {@code solveBytesPerLine} for parse and solve, {@code packBytesPerLine} with formatting.
+ * Limits are read from {@code --baseline <file>}, next to the throughput baseline. JMH forks benchmark JVMs
+ * with the classpath of this one, so it is started as a separate process rather than inside Maven.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public final class AllocationCheck {
+    private static final String NORM = "gc.alloc.rate.norm";
+    private static final String SOLVE_BYTES_PER_LINE = "solveBytesPerLine";
+    private static final String PACK_BYTES_PER_LINE = "packBytesPerLine";
+
+    private AllocationCheck() {
+    }
+
+    public static void main(String[] args) throws IOException, RunnerException {
+        Map<String, String> options = ThroughputRunner.options(args);
+        Properties limits = new Properties();
+        String baseline = options.get("baseline");
+        if (baseline != null) {
+            try (Reader in = Files.newBufferedReader(Paths.get(baseline), StandardCharsets.UTF_8)) {
+                limits.load(in);
+            }
+        }
+        double solveLimit = Double.parseDouble(limits.getProperty(SOLVE_BYTES_PER_LINE, "64"));
+        double packLimit = Double.parseDouble(limits.getProperty(PACK_BYTES_PER_LINE, "256"));
+
+        List<String> failures = new ArrayList<>();
+        int checked = 0;
+        for (RunResult run : run()) {
+            checked++;
+            String benchmark = run.getParams().getBenchmark();
+            String name = benchmark.substring(benchmark.lastIndexOf('.') + 1) + " " + run.getParams().getParam("shape");
+            double limit = name.startsWith("solve") ? solveLimit : packLimit;
+            double bytes = norm(run);
+            System.out.printf("%s: %.1f bytes per line, limit %.0f%n", name, bytes, limit);
+            if (bytes > limit) {
+                failures.add(String.format("%s allocates %.1f bytes per line", name, bytes));
+            }
+        }
+        if (checked == 0) {
+            throw new IllegalStateException("No allocation results, see benchmark output");
+        }
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException("Allocation regression: " + String.join(", ", failures));
+        }
+    }
+
+    private static Iterable<RunResult> run() throws RunnerException {
+        return new Runner(new OptionsBuilder()
+                .include(AllocationBenchmark.class.getName())
+                .addProfiler(GCProfiler.class)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(3)
+                .measurementTime(TimeValue.seconds(1))
+                .forks(1)
+                .build())
+                .run();
+    }
+
+    private static double norm(RunResult run) {
+        for (String label : run.getSecondaryResults().keySet()) {
+            if (label.endsWith(NORM)) {
+                Result<?> result = run.getSecondaryResults().get(label);
+                return result.getScore();
+            }
+        }
+        throw new IllegalStateException("No " + NORM + " for " + run.getParams().getBenchmark());
+    }
+}
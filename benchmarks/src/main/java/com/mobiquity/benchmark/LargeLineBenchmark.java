@@ -0,0 +1,52 @@
+package com.mobiquity.benchmark;
+
+import com.mobiquity.api.ItemBatch;
+import com.mobiquity.exception.APIException;
+import com.mobiquity.solver.BranchAndBoundSolver;
+import com.mobiquity.solver.ParallelBranchAndBoundSolver;
+import com.mobiquity.utils.AlgoUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Branch-and-bound on a single line with hundreds of items, on the calling thread and on the common pool.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LargeLineBenchmark {
+    @Param({"100", "300"})
+    int items;
+    @Param({"500", "2000"})
+    int capacity;
+
+    ItemBatch batch;
+    BranchAndBoundSolver sequential;
+    ParallelBranchAndBoundSolver parallel;
+
+    @Setup
+    public void setUp() throws APIException {
+        batch = new ItemBatch();
+        AlgoUtils.readBatch(Lines.line(new Random(Lines.SEED), items, capacity, 2), batch,
+                (unscaled, scale) -> true, (unscaled, scale) -> true, amount -> true);
+        sequential = new BranchAndBoundSolver();
+        parallel = new ParallelBranchAndBoundSolver();
+    }
+
+    @Benchmark
+    public int sequential() {
+        return sequential.solve(batch);
+    }
+
+    @Benchmark
+    public int parallel() {
+        return parallel.solve(batch);
+    }
+}
@@ -0,0 +1,36 @@
+package com.mobiquity.benchmark;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+/**
+ * Seeded generator of input lines for benchmarks.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+final class Lines {
+    static final long SEED = 42;
+
+    private Lines() {
+    }
+
+    /**
+     * @param random   source of randomness
+     * @param items    amount of items
+     * @param capacity package capacity
+     * @param decimals weight decimal digits
+     * @return line in {@code capacity : (index,weight,€price) ...} format
+     */
+    static String line(Random random, int items, int capacity, int decimals) {
+        long scale = BigDecimal.ONE.movePointRight(decimals).longValueExact();
+        StringBuilder sb = new StringBuilder().append(capacity).append(" :");
+        for (int i = 1; i <= items; i++) {
+            BigDecimal weight = BigDecimal.valueOf(1 + (long) (random.nextDouble() * (100 * scale - 1)), decimals);
+            sb.append(" (").append(i)
+                    .append(',').append(weight.toPlainString())
+                    .append(",€").append(1 + random.nextInt(100))
+                    .append(')');
+        }
+        return sb.toString();
+    }
+}
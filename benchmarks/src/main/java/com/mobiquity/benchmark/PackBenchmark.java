@@ -0,0 +1,104 @@
+package com.mobiquity.benchmark;
+
+import com.mobiquity.codec.BinaryConverter;
+import com.mobiquity.exception.APIException;
+import com.mobiquity.packer.Packer;
+import com.mobiquity.packer.PackerConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * End-to-end packing of a generated file, through the classpath entry point and the filesystem one, and of
+ * the same packages in the binary format.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PackBenchmark {
+    static final String RESOURCE = "benchmark_input";
+
+    @Param({"1000"})
+    int lines;
+    @Param({"5", "15"})
+    int items;
+    @Param({"2", "4"})
+    int decimals;
+    @Param({"1", "4"})
+    int threads;
+
+    Path directory;
+    Path file;
+    PackerConfig config;
+    ClassLoader previous;
+    byte[] binary;
+
+    @Setup
+    public void setUp() throws IOException, APIException {
+        Random random = new Random(Lines.SEED);
+        directory = Files.createTempDirectory("packer-benchmark");
+        file = directory.resolve(RESOURCE);
+        Files.writeString(file, IntStream.range(0, lines)
+                .mapToObj(i -> Lines.line(random, items, 1 + random.nextInt(100), decimals))
+                .collect(Collectors.joining("\n")), StandardCharsets.UTF_8);
+        config = PackerConfig.builder().threads(threads).build();
+        ByteArrayOutputStream packages = new ByteArrayOutputStream();
+        BinaryConverter.textToBinary(Files.newBufferedReader(file, StandardCharsets.UTF_8), packages);
+        binary = packages.toByteArray();
+        previous = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(
+                new URLClassLoader(new URL[]{directory.toUri().toURL()}, previous));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Thread.currentThread().setContextClassLoader(previous);
+        try (var paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.delete(p);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    @Benchmark
+    public String packResource() throws APIException {
+        return Packer.pack(RESOURCE);
+    }
+
+    @Benchmark
+    public String packPath() throws APIException {
+        StringWriter writer = new StringWriter();
+        Packer.pack(file, writer, config);
+        return writer.toString();
+    }
+
+    @Benchmark
+    public int packBinary() throws APIException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(lines);
+        Packer.packBinary(new ByteArrayInputStream(binary), out, config);
+        return out.size();
+    }
+}
@@ -0,0 +1,55 @@
+package com.mobiquity.benchmark;
+
+import com.mobiquity.api.ItemBatch;
+import com.mobiquity.exception.APIException;
+import com.mobiquity.packer.Packer;
+import com.mobiquity.utils.AlgoUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Line parsing, through the legacy item callback and into a reusable batch.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParseBenchmark {
+    @Param({"1", "5", "10", "15", "25"})
+    int items;
+    @Param({"2", "4"})
+    int decimals;
+
+    String line;
+    ItemBatch batch;
+
+    @Setup
+    public void setUp() {
+        line = Lines.line(new Random(Lines.SEED), items, 100, decimals);
+        batch = new ItemBatch();
+    }
+
+    @Benchmark
+    public void readLine(Blackhole blackhole) throws APIException {
+        AlgoUtils.readLine(line, (weight, item) -> {
+            blackhole.consume(item);
+            return null;
+        });
+    }
+
+    @Benchmark
+    public ItemBatch readBatch() throws APIException {
+        AlgoUtils.readBatch(line, batch.reset(),
+                Packer.validateMaxWeight(),
+                Packer.validateMaxPrice(),
+                amount -> true);
+        return batch;
+    }
+}
@@ -0,0 +1,59 @@
+package com.mobiquity.benchmark;
+
+import com.mobiquity.api.Item;
+import com.mobiquity.solver.PackingSession;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single edits of a package kept in a {@link PackingSession}: the edit and its undo, so the session keeps
+ * its size.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SessionBenchmark {
+    @Param({"5", "15"})
+    int items;
+    @Param({"2", "3"})
+    int decimals;
+
+    PackingSession session;
+    Item extra;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(Lines.SEED);
+        session = new PackingSession(new BigDecimal("50"), new BigDecimal("100").setScale(decimals));
+        for (int i = 1; i <= items; i++) {
+            session.add(item(random, i));
+        }
+        extra = item(random, items + 1);
+    }
+
+    @Benchmark
+    public List<Integer> addAndRemoveLast() {
+        session.add(extra);
+        return session.remove(extra.getIndex());
+    }
+
+    @Benchmark
+    public List<Integer> changeCapacity() {
+        session.capacity(new BigDecimal("75"));
+        return session.capacity(new BigDecimal("50"));
+    }
+
+    private Item item(Random random, int index) {
+        return new Item(index, BigDecimal.valueOf(1 + random.nextInt(100 * (int) Math.pow(10, decimals) - 1),
+                decimals), BigDecimal.valueOf(1 + random.nextInt(100)));
+    }
+}
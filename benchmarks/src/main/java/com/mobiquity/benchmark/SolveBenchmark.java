@@ -0,0 +1,57 @@
+package com.mobiquity.benchmark;
+
+import com.mobiquity.api.Item;
+import com.mobiquity.exception.APIException;
+import com.mobiquity.utils.AlgoUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solving a single line, from parsed items and from raw text.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SolveBenchmark {
+    @Param({"1", "5", "10", "15", "25"})
+    int items;
+    @Param({"10", "100"})
+    int capacity;
+    @Param({"2", "4"})
+    int decimals;
+
+    String line;
+    List<Item> parsed;
+    BigDecimal maxWeight;
+
+    @Setup
+    public void setUp() throws APIException {
+        line = Lines.line(new Random(Lines.SEED), items, capacity, decimals);
+        parsed = new ArrayList<>();
+        AlgoUtils.readLine(line, (weight, item) -> {
+            maxWeight = weight;
+            parsed.add(item);
+            return null;
+        });
+    }
+
+    @Benchmark
+    public List<Item> findMaxPriceLimitedByWeight() {
+        return AlgoUtils.findMaxPriceLimitedByWeight(parsed, maxWeight);
+    }
+
+    @Benchmark
+    public String listIndexesWithMaxPrice() throws APIException {
+        return AlgoUtils.listIndexesWithMaxPrice(line, i -> true, i -> true, i -> true);
+    }
+}
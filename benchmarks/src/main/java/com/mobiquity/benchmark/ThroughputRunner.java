@@ -0,0 +1,204 @@
+package com.mobiquity.benchmark;
+
+import com.mobiquity.exception.APIException;
+import com.mobiquity.metrics.PackerMetrics;
+import com.mobiquity.packer.ErrorPolicy;
+import com.mobiquity.packer.LineError;
+import com.mobiquity.packer.Packer;
+import com.mobiquity.packer.PackerConfig;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Feeds a generated workload through {@link Packer#pack(Path, Writer, PackerConfig)} and reports lines per
+ * second, p50/p99 per-line latency and peak heap.
+ * <p>
+ * Throughput is also reported relative to a fixed JDK-only workload timed in the same JVM, so a baseline taken
+ * on one machine still holds on another. With {@code --baseline <file>} that relative throughput is compared
+ * with the {@code relativeThroughput} stored there and the run fails when it is lower by more than
+ * {@code threshold} (share, {@code 0.2} by default). With {@code --update-baseline} the measured value is
+ * written to the file instead. Other options set up the
+ * workload: {@code --lines}, {@code --seed}, {@code --min-items}, {@code --max-items},
+ * {@code --item-counts}, {@code --decimals}, {@code --duplicates}, {@code --malformed}, {@code --runs}.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public final class ThroughputRunner {
+    private static final String RELATIVE_THROUGHPUT = "relativeThroughput";
+    private static final String THRESHOLD = "threshold";
+    private static final double DEFAULT_THRESHOLD = 0.2;
+    private static final int CALIBRATION_SIZE = 100_000;
+    private static final int CALIBRATION_SORTS = 20;
+
+    private ThroughputRunner() {
+    }
+
+    public static void main(String[] args) throws IOException, APIException {
+        Map<String, String> options = options(args);
+        WorkloadGenerator generator = WorkloadGenerator.builder()
+                .seed(Long.parseLong(options.getOrDefault("seed", String.valueOf(Lines.SEED))))
+                .lines(Integer.parseInt(options.getOrDefault("lines", "200000")))
+                .minItems(Integer.parseInt(options.getOrDefault("min-items", "1")))
+                .maxItems(Integer.parseInt(options.getOrDefault("max-items", "15")))
+                .itemCounts(WorkloadGenerator.ItemCounts.valueOf(options.getOrDefault("item-counts", "UNIFORM")))
+                .weightDecimals(Integer.parseInt(options.getOrDefault("decimals", "2")))
+                .duplicateRatio(Double.parseDouble(options.getOrDefault("duplicates", "0.1")))
+                .malformedRatio(Double.parseDouble(options.getOrDefault("malformed", "0.01")))
+                .build();
+        int runs = Integer.parseInt(options.getOrDefault("runs", "3"));
+
+        Path file = Files.createTempFile("packer-workload", ".txt");
+        Result best = null;
+        try {
+            generator.write(file);
+            run(file, generator.getLines());
+            for (int i = 0; i < runs; i++) {
+                Result result = run(file, generator.getLines());
+                System.out.println(result);
+                if (best == null || result.linesPerSecond > best.linesPerSecond) {
+                    best = result;
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+        if (best == null) {
+            return;
+        }
+        System.out.println("Best: " + best);
+        double relative = best.linesPerSecond / calibrate(runs);
+        System.out.printf("Relative throughput: %.2f lines per calibration sort%n", relative);
+
+        String baseline = options.get("baseline");
+        if (baseline != null) {
+            compare(Paths.get(baseline), relative, options.containsKey("update-baseline"));
+        }
+    }
+
+    /**
+     * Pack the file once with fresh metrics. Output is discarded, malformed lines are skipped and counted.
+     */
+    static Result run(Path file, long lines) throws APIException {
+        PackerMetrics metrics = new PackerMetrics();
+        PackerConfig config = PackerConfig.defaults().toBuilder()
+                .errorPolicy(ErrorPolicy.SKIP_AND_REPORT)
+                .metrics(metrics)
+                .build();
+        List<MemoryPoolMXBean> heap = heapPools();
+        System.gc();
+        heap.forEach(MemoryPoolMXBean::resetPeakUsage);
+        long started = System.nanoTime();
+        List<LineError> errors = Packer.pack(file, Writer.nullWriter(), config);
+        long elapsed = System.nanoTime() - started;
+        long peakHeap = heap.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        return new Result(lines * 1e9 / elapsed, metrics.getLineNanosP50(), metrics.getLineNanosP99(),
+                peakHeap, errors.size());
+    }
+
+    /**
+     * Best sorts per second of seeded random int arrays: a machine speed reference which does not depend on
+     * packer code.
+     */
+    static double calibrate(int runs) {
+        int[] source = new Random(Lines.SEED).ints(CALIBRATION_SIZE).toArray();
+        double best = 0;
+        for (int run = 0; run <= runs; run++) {
+            long started = System.nanoTime();
+            for (int i = 0; i < CALIBRATION_SORTS; i++) {
+                Arrays.sort(source.clone());
+            }
+            best = Math.max(best, CALIBRATION_SORTS * 1e9 / (System.nanoTime() - started));
+        }
+        return best;
+    }
+
+    private static void compare(Path baseline, double relative, boolean update) throws IOException {
+        Properties stored = new Properties();
+        if (Files.exists(baseline)) {
+            try (Reader in = Files.newBufferedReader(baseline, StandardCharsets.UTF_8)) {
+                stored.load(in);
+            }
+        }
+        if (update) {
+            stored.setProperty(RELATIVE_THROUGHPUT, String.format(Locale.ROOT, "%.2f", relative));
+            stored.putIfAbsent(THRESHOLD, String.valueOf(DEFAULT_THRESHOLD));
+            try (Writer out = Files.newBufferedWriter(baseline, StandardCharsets.UTF_8)) {
+                stored.store(out, "Throughput baseline of ThroughputRunner");
+            }
+            System.out.println("Baseline updated: " + baseline);
+            return;
+        }
+        String expected = stored.getProperty(RELATIVE_THROUGHPUT);
+        if (expected == null) {
+            throw new IllegalStateException("No " + RELATIVE_THROUGHPUT + " in baseline " + baseline);
+        }
+        double threshold = Double.parseDouble(stored.getProperty(THRESHOLD, String.valueOf(DEFAULT_THRESHOLD)));
+        double floor = Double.parseDouble(expected) * (1 - threshold);
+        System.out.printf("Baseline: %s, floor %.2f%n", expected, floor);
+        if (relative < floor) {
+            throw new IllegalStateException(String.format(
+                    "Throughput regression: relative throughput %.2f is below %.2f", relative, floor));
+        }
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Parse {@code --name value} pairs; a name without value maps to an empty string.
+     */
+    static Map<String, String> options(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            String name = args[i].substring(2);
+            boolean hasValue = i + 1 < args.length && !args[i + 1].startsWith("--");
+            options.put(name, hasValue ? args[++i] : "");
+        }
+        return options;
+    }
+
+    static final class Result {
+        final double linesPerSecond;
+        final long p50Nanos;
+        final long p99Nanos;
+        final long peakHeapBytes;
+        final int errors;
+
+        Result(double linesPerSecond, long p50Nanos, long p99Nanos, long peakHeapBytes, int errors) {
+            this.linesPerSecond = linesPerSecond;
+            this.p50Nanos = p50Nanos;
+            this.p99Nanos = p99Nanos;
+            this.peakHeapBytes = peakHeapBytes;
+            this.errors = errors;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.0f lines/s, p50 %d ns, p99 %d ns, peak heap %d MiB, %d malformed lines",
+                    linesPerSecond, p50Nanos, p99Nanos, peakHeapBytes >> 20, errors);
+        }
+    }
+}
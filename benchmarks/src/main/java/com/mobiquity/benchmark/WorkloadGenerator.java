@@ -0,0 +1,116 @@
+package com.mobiquity.benchmark;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Seeded generator of input files in the {@code capacity : (index,weight,€price) ...} format.
+ * <p>
+ * The same settings always produce the same file. Duplicate lines repeat one of the recently generated
+ * lines, malformed lines are valid lines broken in one of a few ways the parser must reject.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+@Getter
+@Builder(toBuilder = true)
+public final class WorkloadGenerator {
+    private static final int RECENT_LINES = 256;
+
+    @Builder.Default
+    private final long seed = Lines.SEED;
+    @Builder.Default
+    private final int lines = 100_000;
+    @Builder.Default
+    private final int minItems = 1;
+    @Builder.Default
+    private final int maxItems = 15;
+    @Builder.Default
+    private final ItemCounts itemCounts = ItemCounts.UNIFORM;
+    @Builder.Default
+    private final int weightDecimals = 2;
+    @Builder.Default
+    private final double duplicateRatio = 0;
+    @Builder.Default
+    private final double malformedRatio = 0;
+
+    /**
+     * Distribution of item count between {@code minItems} and {@code maxItems}.
+     */
+    public enum ItemCounts {
+        UNIFORM,
+        /**
+         * Most lines have few items.
+         */
+        SMALL,
+        /**
+         * Most lines are close to the item limit.
+         */
+        LARGE
+    }
+
+    /**
+     * Write the workload to a file, replacing existing content.
+     *
+     * @param file target file
+     * @throws IOException if file cannot be written
+     */
+    public void write(Path file) throws IOException {
+        if (minItems < 1 || maxItems < minItems) {
+            throw new IllegalArgumentException("Invalid item range: " + minItems + ".." + maxItems);
+        }
+        Random random = new Random(seed);
+        String[] recent = new String[RECENT_LINES];
+        int generated = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < lines; i++) {
+                String line;
+                if (generated > 0 && random.nextDouble() < duplicateRatio) {
+                    line = recent[random.nextInt(Math.min(generated, RECENT_LINES))];
+                } else {
+                    line = Lines.line(random, items(random), 1 + random.nextInt(100), weightDecimals);
+                    recent[generated++ % RECENT_LINES] = line;
+                }
+                if (random.nextDouble() < malformedRatio) {
+                    line = malformed(random, line);
+                }
+                out.write(line);
+                out.write('\n');
+            }
+        }
+    }
+
+    private int items(Random random) {
+        double r = random.nextDouble();
+        switch (itemCounts) {
+            case SMALL:
+                r = r * r;
+                break;
+            case LARGE:
+                r = 1 - r * r;
+                break;
+            default:
+                break;
+        }
+        return Math.min(maxItems, minItems + (int) (r * (maxItems - minItems + 1)));
+    }
+
+    private static String malformed(Random random, String line) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return line.replace(" :", "");
+            case 1:
+                return line.replace('€', '$');
+            case 2:
+                return line.substring(0, line.length() - 1);
+            default:
+                return line.replaceFirst(",", ",x");
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.mobiquity.api;
+
+import com.mobiquity.utils.FixedPoint;
+import lombok.NonNull;
+
+import java.math.BigDecimal;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Items of a single line kept in parallel primitive arrays.
+ * <p>
+ * Weights and capacity share one scale, prices another; both start at hundredths and move to a finer scale
+ * when a value with more decimals arrives. A batch is meant to be {@link #reset()} and reused across lines,
+ * so a line costs no objects once the arrays have grown to its size. Solvers write chosen positions into
+ * {@link #selection()}. A batch may also carry a search budget: open-ended solvers stop once it is spent
+ * and mark their selection {@link #approximate()}.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public final class ItemBatch {
+    public static final int DEFAULT_SCALE = 2;
+    private static final int DEFAULT_LENGTH = 16;
+
+    private int[] indexes;
+    private int[] weights;
+    private int[] prices;
+    private int[] selection;
+    private int size;
+    private int capacity;
+    private int weightScale;
+    private int priceScale;
+    private long nodeBudget;
+    private long deadline;
+    private boolean timed;
+    private boolean approximate;
+    private long searchNodes;
+    private String solvedBy;
+
+    public ItemBatch() {
+        this(DEFAULT_LENGTH);
+    }
+
+    public ItemBatch(int length) {
+        indexes = new int[length];
+        weights = new int[length];
+        prices = new int[length];
+        selection = new int[length];
+        reset();
+    }
+
+    /**
+     * Build batch from items.
+     *
+     * @param items    items to copy
+     * @param capacity package capacity
+     * @return new batch
+     */
+    public static ItemBatch of(@NonNull List<Item> items, @NonNull BigDecimal capacity) {
+        ItemBatch batch = new ItemBatch(Math.max(items.size(), 1));
+        batch.capacity(capacity.unscaledValue().longValueExact(), capacity.scale());
+        for (Item item : items) {
+            batch.add(item.getIndex(),
+                    item.getWeight().unscaledValue().longValueExact(), item.getWeight().scale(),
+                    item.getPrice().unscaledValue().longValueExact(), item.getPrice().scale());
+        }
+        return batch;
+    }
+
+    /**
+     * Drop all items and capacity, keeping the arrays.
+     *
+     * @return this batch
+     */
+    public ItemBatch reset() {
+        size = 0;
+        capacity = 0;
+        weightScale = DEFAULT_SCALE;
+        priceScale = DEFAULT_SCALE;
+        nodeBudget = Long.MAX_VALUE;
+        timed = false;
+        approximate = false;
+        searchNodes = 0;
+        solvedBy = null;
+        return this;
+    }
+
+    /**
+     * Limit search for this line.
+     *
+     * @param nodes maximum amount of search steps, {@link Long#MAX_VALUE} for no limit
+     */
+    public void nodeBudget(long nodes) {
+        nodeBudget = nodes;
+    }
+
+    /**
+     * @return maximum amount of search steps, {@link Long#MAX_VALUE} when not set
+     */
+    public long nodeBudget() {
+        return nodeBudget;
+    }
+
+    /**
+     * Limit search for this line in time.
+     *
+     * @param nanoTime {@link System#nanoTime()} value after which search stops
+     */
+    public void deadline(long nanoTime) {
+        deadline = nanoTime;
+        timed = true;
+    }
+
+    /**
+     * Copy node budget and deadline from another batch.
+     *
+     * @param other batch to copy limits from
+     */
+    public void limitsOf(@NonNull ItemBatch other) {
+        nodeBudget = other.nodeBudget;
+        deadline = other.deadline;
+        timed = other.timed;
+    }
+
+    /**
+     * @param nodes search steps made so far
+     * @return true if search should stop
+     */
+    public boolean exhausted(long nodes) {
+        return nodes >= nodeBudget || timed && System.nanoTime() - deadline >= 0;
+    }
+
+    /**
+     * @return true if some limit is set
+     */
+    public boolean limited() {
+        return timed || nodeBudget != Long.MAX_VALUE;
+    }
+
+    /**
+     * Mark whether selection may miss the optimum.
+     *
+     * @param approximate true if search stopped early
+     */
+    public void approximate(boolean approximate) {
+        this.approximate = approximate;
+    }
+
+    public boolean approximate() {
+        return approximate;
+    }
+
+    /**
+     * Report search effort for this line.
+     *
+     * @param nodes search nodes or subsets visited
+     */
+    public void searchNodes(long nodes) {
+        searchNodes = nodes;
+    }
+
+    public long searchNodes() {
+        return searchNodes;
+    }
+
+    /**
+     * Report which solver answered this line.
+     *
+     * @param solver solver name, or how the line was answered without search
+     */
+    public void solvedBy(String solver) {
+        solvedBy = solver;
+    }
+
+    /**
+     * @return name of the solver which answered this line, {@code null} if none reported it
+     */
+    public String solvedBy() {
+        return solvedBy;
+    }
+
+    /**
+     * Set package capacity.
+     *
+     * @param unscaled unscaled capacity
+     * @param scale    capacity decimal digits
+     * @throws ArithmeticException if capacity does not fit into int at batch scale
+     */
+    public void capacity(long unscaled, int scale) {
+        if (scale > weightScale) {
+            rescaleWeights(scale);
+        }
+        capacity = Math.toIntExact(FixedPoint.rescale(unscaled, scale, weightScale));
+    }
+
+    /**
+     * Append item.
+     *
+     * @throws ArithmeticException if weight or price does not fit into int at batch scale
+     */
+    public void add(int index, long weight, int weightScale, long price, int priceScale) {
+        if (weightScale > this.weightScale) {
+            rescaleWeights(weightScale);
+        }
+        if (priceScale > this.priceScale) {
+            rescalePrices(priceScale);
+        }
+        int w = Math.toIntExact(FixedPoint.rescale(weight, weightScale, this.weightScale));
+        int p = Math.toIntExact(FixedPoint.rescale(price, priceScale, this.priceScale));
+        if (size == indexes.length) {
+            int length = size * 2;
+            indexes = Arrays.copyOf(indexes, length);
+            weights = Arrays.copyOf(weights, length);
+            prices = Arrays.copyOf(prices, length);
+            selection = new int[length];
+        }
+        indexes[size] = index;
+        weights[size] = w;
+        prices[size] = p;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int weightScale() {
+        return weightScale;
+    }
+
+    public int priceScale() {
+        return priceScale;
+    }
+
+    public int index(int position) {
+        return indexes[position];
+    }
+
+    public int weight(int position) {
+        return weights[position];
+    }
+
+    public int price(int position) {
+        return prices[position];
+    }
+
+    /**
+     * @return item weights, valid up to {@link #size()}
+     */
+    public int[] weights() {
+        return weights;
+    }
+
+    /**
+     * @return item prices, valid up to {@link #size()}
+     */
+    public int[] prices() {
+        return prices;
+    }
+
+    /**
+     * @return output buffer for chosen positions, at least {@link #size()} long
+     */
+    public int[] selection() {
+        return selection;
+    }
+
+    /**
+     * Create item for position, with weight and price at batch scale.
+     *
+     * @param position item position
+     * @return item
+     */
+    public Item item(int position) {
+        return Item.builder()
+                .index(indexes[position])
+                .weight(BigDecimal.valueOf(weights[position], weightScale))
+                .price(BigDecimal.valueOf(prices[position], priceScale))
+                .build();
+    }
+
+    /**
+     * @return list view which creates items on access
+     */
+    public List<Item> items() {
+        return new AbstractList<>() {
+            @Override
+            public Item get(int position) {
+                return item(position);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private void rescaleWeights(int scale) {
+        for (int i = 0; i < size; i++) {
+            weights[i] = Math.toIntExact(FixedPoint.rescale(weights[i], weightScale, scale));
+        }
+        capacity = Math.toIntExact(FixedPoint.rescale(capacity, weightScale, scale));
+        weightScale = scale;
+    }
+
+    private void rescalePrices(int scale) {
+        for (int i = 0; i < size; i++) {
+            prices[i] = Math.toIntExact(FixedPoint.rescale(prices[i], priceScale, scale));
+        }
+        priceScale = scale;
+    }
+}
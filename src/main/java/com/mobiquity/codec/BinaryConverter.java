@@ -0,0 +1,168 @@
+package com.mobiquity.codec;
+
+import com.mobiquity.api.ItemBatch;
+import com.mobiquity.exception.APIException;
+import com.mobiquity.utils.LineParser;
+import lombok.NonNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.function.Consumer;
+
+import static com.mobiquity.utils.FunctionalUtils.joinLines;
+
+/**
+ * Converters between the text format and the {@link BinaryFormat binary format}, for moving feeds over.
+ * Values are copied as they are, without the limits a pack run applies.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public final class BinaryConverter {
+    private BinaryConverter() {
+    }
+
+    /**
+     * Convert text lines into package records.
+     *
+     * @param reader text input
+     * @param out    binary output, flushed at the end
+     * @return amount of converted lines
+     * @throws APIException if reader or stream fails or a line is malformed
+     */
+    public static long textToBinary(@NonNull Reader reader, @NonNull OutputStream out) throws APIException {
+        BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        ItemBatch batch = new ItemBatch();
+        LineParser.LineSink sink = new LineParser.LineSink() {
+            @Override
+            public void capacity(long weight, int weightScale) throws APIException {
+                try {
+                    batch.capacity(weight, weightScale);
+                } catch (ArithmeticException e) {
+                    throw new APIException("Package weight out of range.", e);
+                }
+            }
+
+            @Override
+            public void item(int index, long weight, int weightScale, long price, int priceScale)
+                    throws APIException {
+                try {
+                    batch.add(index, weight, weightScale, price, priceScale);
+                } catch (ArithmeticException e) {
+                    throw new APIException("Item value out of range.", e);
+                }
+            }
+        };
+        long number = 0;
+        try {
+            PackageWriter writer = new PackageWriter(out);
+            String line;
+            while ((line = lines.readLine()) != null) {
+                number++;
+                batch.reset();
+                try {
+                    LineParser.parse(line, sink);
+                } catch (APIException e) {
+                    throw new APIException("Line " + number + ": " + e.getMessage(), e);
+                }
+                writer.write(batch);
+            }
+            writer.flush();
+            return number;
+        } catch (IOException e) {
+            throw new APIException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Convert package records into text lines.
+     *
+     * @param in     binary input
+     * @param writer text output, flushed at the end
+     * @return amount of converted packages
+     * @throws APIException if stream or writer fails or input is malformed
+     */
+    public static long binaryToText(@NonNull InputStream in, @NonNull Writer writer) throws APIException {
+        try {
+            PackageReader packages = new PackageReader(in);
+            Consumer<String> lines = joinLines(writer);
+            StringBuilder sb = new StringBuilder();
+            long count = 0;
+            while (packages.next()) {
+                sb.setLength(0);
+                sb.append(decimal(packages.capacity(), packages.weightScale())).append(" :");
+                for (int i = 0; i < packages.size(); i++) {
+                    sb.append(" (").append(packages.index(i))
+                            .append(',').append(decimal(packages.weight(i), packages.weightScale()))
+                            .append(",€").append(decimal(packages.price(i), packages.priceScale()))
+                            .append(')');
+                }
+                lines.accept(sb.toString());
+                count++;
+            }
+            writer.flush();
+            return count;
+        } catch (IOException | UncheckedIOException e) {
+            throw new APIException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Convert result records into the text result lines, taking item indexes from the packed input.
+     *
+     * @param packages          binary input the results belong to
+     * @param results           binary output of the pack run
+     * @param writer            text output, flushed at the end
+     * @param approximateMarker appended to approximate results
+     * @param errorMarker       written for failed packages
+     * @return amount of converted results
+     * @throws APIException if streams or writer fail, input is malformed or streams do not match
+     */
+    public static long resultsToText(@NonNull InputStream packages,
+                                     @NonNull InputStream results,
+                                     @NonNull Writer writer,
+                                     @NonNull String approximateMarker,
+                                     @NonNull String errorMarker) throws APIException {
+        try {
+            PackageReader input = new PackageReader(packages);
+            ResultReader output = new ResultReader(results);
+            Consumer<String> lines = joinLines(writer);
+            StringBuilder sb = new StringBuilder();
+            long count = 0;
+            while (output.next()) {
+                count++;
+                if (!input.next() || !output.failed() && output.size() != input.size()) {
+                    throw new APIException("Result " + count + " does not match input.");
+                }
+                if (output.failed()) {
+                    lines.accept(errorMarker);
+                    continue;
+                }
+                sb.setLength(0);
+                for (int i = 0; i < input.size(); i++) {
+                    if (output.chosen(i)) {
+                        sb.append(sb.length() == 0 ? "" : ",").append(input.index(i));
+                    }
+                }
+                if (sb.length() == 0) {
+                    sb.append('-');
+                }
+                lines.accept(output.approximate() ? sb.append(approximateMarker).toString() : sb.toString());
+            }
+            writer.flush();
+            return count;
+        } catch (IOException | UncheckedIOException e) {
+            throw new APIException(e.getMessage(), e);
+        }
+    }
+
+    private static String decimal(long unscaled, int scale) {
+        BigDecimal value = BigDecimal.valueOf(unscaled, scale).stripTrailingZeros();
+        return (value.scale() < 0 ? value.setScale(0) : value).toPlainString();
+    }
+}
@@ -0,0 +1,103 @@
+package com.mobiquity.codec;
+
+import com.mobiquity.exception.APIException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Layout of the binary pack format and its varint primitives.
+ * <p>
+ * Both streams start with four magic bytes and a version byte. Input then holds one record per package:
+ * <pre>
+ * weightScale:u8 priceScale:u8 capacity:varint n:varint
+ * index[n]:varint weight[n]:varint price[n]:varint
+ * </pre>
+ * Weights, capacity and prices are unscaled fixed-point values at the record scales, so {@code 53.38} with
+ * weight scale {@code 2} is stored as {@code 5338}. Output holds one record per input package: a status byte,
+ * then for solved packages the item count and a bitmask of {@code (n + 7) / 8} bytes where bit {@code i} of
+ * byte {@code i / 8} marks the item at input position {@code i}. Varints are unsigned LEB128.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public final class BinaryFormat {
+    public static final int VERSION = 1;
+    public static final byte STATUS_SOLVED = 0;
+    public static final byte STATUS_APPROXIMATE = 1;
+    public static final byte STATUS_ERROR = 2;
+    /**
+     * Upper bound for item count of a record, guards against corrupt input.
+     */
+    public static final int MAX_ITEMS = 1 << 20;
+    static final byte[] PACKAGES_MAGIC = {'M', 'Q', 'P', 'K'};
+    static final byte[] RESULTS_MAGIC = {'M', 'Q', 'P', 'R'};
+
+    private BinaryFormat() {
+    }
+
+    static void writeHeader(OutputStream out, byte[] magic) throws IOException {
+        out.write(magic);
+        out.write(VERSION);
+    }
+
+    static void readHeader(InputStream in, byte[] magic) throws IOException, APIException {
+        for (byte expected : magic) {
+            if (in.read() != expected) {
+                throw new APIException("Not a binary pack stream.");
+            }
+        }
+        int version = in.read();
+        if (version != VERSION) {
+            throw new APIException("Unsupported binary format version: " + version);
+        }
+    }
+
+    /**
+     * @param out   target stream
+     * @param value non-negative value
+     * @throws IOException if stream fails
+     */
+    static void writeVarLong(OutputStream out, long value) throws IOException {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value: " + value);
+        }
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarLong(InputStream in) throws IOException, APIException {
+        long value = 0;
+        for (int shift = 0; shift < 63; shift += 7) {
+            int b = readByte(in);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new APIException("Malformed varint.");
+    }
+
+    static int readVarInt(InputStream in) throws IOException, APIException {
+        long value = readVarLong(in);
+        if (value > Integer.MAX_VALUE) {
+            throw new APIException("Value out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    /**
+     * @throws EOFException if stream ends inside a record
+     */
+    static int readByte(InputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("Truncated binary record.");
+        }
+        return b;
+    }
+}
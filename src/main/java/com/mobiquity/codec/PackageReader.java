@@ -0,0 +1,125 @@
+package com.mobiquity.codec;
+
+import com.mobiquity.exception.APIException;
+import com.mobiquity.utils.FixedPoint;
+import com.mobiquity.utils.LineParser;
+import lombok.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads package records of the {@link BinaryFormat binary format} one at a time into reusable columns.
+ * <p>
+ * Errors in framing (bad header, truncated record, impossible scale or count) are thrown as
+ * {@link APIException} and leave the stream unusable, as the next record cannot be found any more.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public final class PackageReader {
+    private final InputStream in;
+    private int weightScale;
+    private int priceScale;
+    private long capacity;
+    private int size;
+    private int[] indexes = new int[16];
+    private long[] weights = new long[16];
+    private long[] prices = new long[16];
+
+    /**
+     * @param in binary input, buffered unless it already is
+     * @throws IOException  if stream fails
+     * @throws APIException if stream does not start with the package header
+     */
+    public PackageReader(@NonNull InputStream in) throws IOException, APIException {
+        this.in = in instanceof BufferedInputStream ? in : new BufferedInputStream(in);
+        BinaryFormat.readHeader(this.in, BinaryFormat.PACKAGES_MAGIC);
+    }
+
+    /**
+     * Read the next record.
+     *
+     * @return false at end of stream
+     * @throws IOException  if stream fails or ends inside a record
+     * @throws APIException if record is malformed
+     */
+    public boolean next() throws IOException, APIException {
+        int first = in.read();
+        if (first < 0) {
+            return false;
+        }
+        weightScale = scale(first);
+        priceScale = scale(BinaryFormat.readByte(in));
+        capacity = BinaryFormat.readVarLong(in);
+        size = BinaryFormat.readVarInt(in);
+        if (size > BinaryFormat.MAX_ITEMS) {
+            throw new APIException("Too many items in binary record: " + size);
+        }
+        if (size > indexes.length) {
+            int length = Math.max(size, indexes.length * 2);
+            indexes = Arrays.copyOf(indexes, length);
+            weights = Arrays.copyOf(weights, length);
+            prices = Arrays.copyOf(prices, length);
+        }
+        for (int i = 0; i < size; i++) {
+            indexes[i] = BinaryFormat.readVarInt(in);
+        }
+        for (int i = 0; i < size; i++) {
+            weights[i] = BinaryFormat.readVarLong(in);
+        }
+        for (int i = 0; i < size; i++) {
+            prices[i] = BinaryFormat.readVarLong(in);
+        }
+        return true;
+    }
+
+    /**
+     * Pass the current record to a sink, in the same calls the text parser makes.
+     *
+     * @param sink receiver for capacity and items
+     * @throws APIException if sink rejects a value
+     */
+    public void replay(@NonNull LineParser.LineSink sink) throws APIException {
+        sink.capacity(capacity, weightScale);
+        for (int i = 0; i < size; i++) {
+            sink.item(indexes[i], weights[i], weightScale, prices[i], priceScale);
+        }
+    }
+
+    public int weightScale() {
+        return weightScale;
+    }
+
+    public int priceScale() {
+        return priceScale;
+    }
+
+    public long capacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int index(int position) {
+        return indexes[position];
+    }
+
+    public long weight(int position) {
+        return weights[position];
+    }
+
+    public long price(int position) {
+        return prices[position];
+    }
+
+    private static int scale(int scale) throws APIException {
+        if (scale > FixedPoint.MAX_SCALE) {
+            throw new APIException("Scale out of range: " + scale);
+        }
+        return scale;
+    }
+}
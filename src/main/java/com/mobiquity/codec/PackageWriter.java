@@ -0,0 +1,55 @@
+package com.mobiquity.codec;
+
+import com.mobiquity.api.ItemBatch;
+import lombok.NonNull;
+
+import java.io.BufferedOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes package records of the {@link BinaryFormat binary format}.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public final class PackageWriter implements Flushable {
+    private final OutputStream out;
+
+    /**
+     * @param out binary output, buffered unless it already is; the header is written right away
+     * @throws IOException if stream fails
+     */
+    public PackageWriter(@NonNull OutputStream out) throws IOException {
+        this.out = out instanceof BufferedOutputStream ? out : new BufferedOutputStream(out);
+        BinaryFormat.writeHeader(this.out, BinaryFormat.PACKAGES_MAGIC);
+    }
+
+    /**
+     * Write a package with all its items at batch scales.
+     *
+     * @param batch package to write
+     * @throws IOException if stream fails
+     */
+    public void write(@NonNull ItemBatch batch) throws IOException {
+        int size = batch.size();
+        out.write(batch.weightScale());
+        out.write(batch.priceScale());
+        BinaryFormat.writeVarLong(out, batch.capacity());
+        BinaryFormat.writeVarLong(out, size);
+        for (int i = 0; i < size; i++) {
+            BinaryFormat.writeVarLong(out, batch.index(i));
+        }
+        for (int i = 0; i < size; i++) {
+            BinaryFormat.writeVarLong(out, batch.weight(i));
+        }
+        for (int i = 0; i < size; i++) {
+            BinaryFormat.writeVarLong(out, batch.price(i));
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+}
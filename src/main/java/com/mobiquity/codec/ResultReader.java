@@ -0,0 +1,86 @@
+package com.mobiquity.codec;
+
+import com.mobiquity.exception.APIException;
+import lombok.NonNull;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads result records of the {@link BinaryFormat binary format} one at a time.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public final class ResultReader {
+    private final InputStream in;
+    private int status;
+    private int size;
+    private byte[] mask = new byte[2];
+
+    /**
+     * @param in binary output of a pack run, buffered unless it already is
+     * @throws IOException  if stream fails
+     * @throws APIException if stream does not start with the result header
+     */
+    public ResultReader(@NonNull InputStream in) throws IOException, APIException {
+        this.in = in instanceof BufferedInputStream ? in : new BufferedInputStream(in);
+        BinaryFormat.readHeader(this.in, BinaryFormat.RESULTS_MAGIC);
+    }
+
+    /**
+     * Read the next record.
+     *
+     * @return false at end of stream
+     * @throws IOException  if stream fails or ends inside a record
+     * @throws APIException if record is malformed
+     */
+    public boolean next() throws IOException, APIException {
+        status = in.read();
+        if (status < 0) {
+            return false;
+        }
+        if (status == BinaryFormat.STATUS_ERROR) {
+            size = 0;
+            return true;
+        }
+        if (status != BinaryFormat.STATUS_SOLVED && status != BinaryFormat.STATUS_APPROXIMATE) {
+            throw new APIException("Unknown result status: " + status);
+        }
+        size = BinaryFormat.readVarInt(in);
+        if (size > BinaryFormat.MAX_ITEMS) {
+            throw new APIException("Too many items in binary record: " + size);
+        }
+        int bytes = (size + 7) >>> 3;
+        if (bytes > mask.length) {
+            mask = new byte[Math.max(bytes, mask.length * 2)];
+        }
+        for (int i = 0; i < bytes; i++) {
+            mask[i] = (byte) BinaryFormat.readByte(in);
+        }
+        return true;
+    }
+
+    public boolean failed() {
+        return status == BinaryFormat.STATUS_ERROR;
+    }
+
+    public boolean approximate() {
+        return status == BinaryFormat.STATUS_APPROXIMATE;
+    }
+
+    /**
+     * @return amount of items in the input record, {@code 0} for failed packages
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param position input position
+     * @return true if the item at position is chosen
+     */
+    public boolean chosen(int position) {
+        return (mask[position >>> 3] & 1 << (position & 7)) != 0;
+    }
+}
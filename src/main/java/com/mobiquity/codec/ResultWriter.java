@@ -0,0 +1,65 @@
+package com.mobiquity.codec;
+
+import lombok.NonNull;
+
+import java.io.BufferedOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Writes result records of the {@link BinaryFormat binary format}.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public final class ResultWriter implements Flushable {
+    private final OutputStream out;
+    private byte[] mask = new byte[2];
+
+    /**
+     * @param out binary output, buffered unless it already is; the header is written right away
+     * @throws IOException if stream fails
+     */
+    public ResultWriter(@NonNull OutputStream out) throws IOException {
+        this.out = out instanceof BufferedOutputStream ? out : new BufferedOutputStream(out);
+        BinaryFormat.writeHeader(this.out, BinaryFormat.RESULTS_MAGIC);
+    }
+
+    /**
+     * Write a solved package.
+     *
+     * @param size        amount of items in the input record
+     * @param positions   chosen input positions
+     * @param found       amount of chosen positions
+     * @param approximate true if search stopped before proving the optimum
+     * @throws IOException if stream fails
+     */
+    public void write(int size, int[] positions, int found, boolean approximate) throws IOException {
+        int bytes = (size + 7) >>> 3;
+        if (bytes > mask.length) {
+            mask = new byte[Math.max(bytes, mask.length * 2)];
+        }
+        Arrays.fill(mask, 0, bytes, (byte) 0);
+        for (int i = 0; i < found; i++) {
+            mask[positions[i] >>> 3] |= 1 << (positions[i] & 7);
+        }
+        out.write(approximate ? BinaryFormat.STATUS_APPROXIMATE : BinaryFormat.STATUS_SOLVED);
+        BinaryFormat.writeVarLong(out, size);
+        out.write(mask, 0, bytes);
+    }
+
+    /**
+     * Write a package which could not be packed.
+     *
+     * @throws IOException if stream fails
+     */
+    public void writeError() throws IOException {
+        out.write(BinaryFormat.STATUS_ERROR);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+}
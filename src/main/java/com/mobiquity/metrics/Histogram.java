@@ -0,0 +1,70 @@
+package com.mobiquity.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative values in power-of-two buckets.
+ * <p>
+ * Recording is a bucket increment plus two adders, cheap enough for every line. Percentiles are
+ * reported as the upper bound of the bucket they fall into, so they are accurate within a factor of two.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public final class Histogram {
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param value value to record, negative values count as zero
+     */
+    public void record(long value) {
+        long v = Math.max(value, 0);
+        buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(v));
+        count.increment();
+        sum.add(v);
+        max.accumulate(v);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public long sum() {
+        return sum.sum();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public double mean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * @param quantile quantile between 0 and 1
+     * @return upper bound of the bucket holding the quantile, {@code 0} when nothing was recorded
+     */
+    public long percentile(double quantile) {
+        long n = count.sum();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * n);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += buckets.get(bucket);
+            if (seen >= rank && seen > 0) {
+                return Math.min(bucket == 0 ? 0 : (1L << bucket) - 1, max.get());
+            }
+        }
+        return max.get();
+    }
+}
@@ -0,0 +1,90 @@
+package com.mobiquity.metrics;
+
+import com.mobiquity.solver.BitmaskSolver;
+import com.mobiquity.solver.BranchAndBoundSolver;
+import com.mobiquity.solver.CachingSolver;
+import com.mobiquity.solver.FixedPointDpSolver;
+import com.mobiquity.solver.FptasSolver;
+import com.mobiquity.solver.MeetInTheMiddleSolver;
+import com.mobiquity.solver.PackingSolver;
+import com.mobiquity.solver.ParallelBranchAndBoundSolver;
+import com.mobiquity.solver.PreFilteringSolver;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.NonNull;
+
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Publishes {@link PackerMetrics} to a Micrometer registry under the {@code packer.} prefix.
+ * <p>
+ * Micrometer is an optional dependency: this class is only loaded when an application binds it.
+ * Meters read the live values, so binding adds nothing to the packing path. Solver choices get a counter
+ * per bundled solver, per answer without search and per any other solver seen before binding.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public final class PackerMeterBinder implements MeterBinder {
+    private static final List<Class<? extends PackingSolver>> SOLVERS = List.of(BitmaskSolver.class,
+            FixedPointDpSolver.class, MeetInTheMiddleSolver.class, BranchAndBoundSolver.class,
+            ParallelBranchAndBoundSolver.class, FptasSolver.class);
+
+    private final PackerMetrics metrics;
+
+    public PackerMeterBinder(@NonNull PackerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void bindTo(@NonNull MeterRegistry registry) {
+        FunctionCounter.builder("packer.lines", metrics, PackerMetrics::getLines)
+                .description("Packed lines")
+                .register(registry);
+        FunctionCounter.builder("packer.search.nodes", metrics, PackerMetrics::getSearchNodes)
+                .description("Search nodes or subsets visited")
+                .register(registry);
+        FunctionCounter.builder("packer.cache.hits", metrics, PackerMetrics::getCacheHits)
+                .register(registry);
+        FunctionCounter.builder("packer.cache.misses", metrics, PackerMetrics::getCacheMisses)
+                .register(registry);
+        latency(registry, "packer.parse", metrics.parseNanos());
+        latency(registry, "packer.solve", metrics.solveNanos());
+        latency(registry, "packer.line", metrics.lineNanos());
+        gauge(registry, "packer.items.per.line", metrics.itemsPerLine(), Histogram::mean);
+        gauge(registry, "packer.items.per.line.max", metrics.itemsPerLine(), Histogram::max);
+        gauge(registry, "packer.allocated.bytes.per.line", metrics.allocatedBytes(), Histogram::mean);
+        Set<String> solvers = new TreeSet<>(metrics.getSolverChoices().keySet());
+        for (Class<?> solver : SOLVERS) {
+            solvers.add(solver.getSimpleName());
+        }
+        solvers.add(PreFilteringSolver.TRIVIAL);
+        solvers.add(CachingSolver.CACHED);
+        for (String solver : solvers) {
+            FunctionCounter.builder("packer.solver.choices", metrics,
+                    m -> m.getSolverChoices().getOrDefault(solver, 0L))
+                    .tag("solver", solver)
+                    .register(registry);
+        }
+    }
+
+    private static void latency(MeterRegistry registry, String name, Histogram histogram) {
+        gauge(registry, name + ".p50", histogram, h -> toSeconds(h.percentile(0.5)));
+        gauge(registry, name + ".p99", histogram, h -> toSeconds(h.percentile(0.99)));
+        gauge(registry, name + ".max", histogram, h -> toSeconds(h.max()));
+    }
+
+    private static void gauge(MeterRegistry registry, String name, Histogram histogram,
+                              ToDoubleFunction<Histogram> value) {
+        Gauge.builder(name, histogram, value).register(registry);
+    }
+
+    private static double toSeconds(long nanos) {
+        return (double) nanos / TimeUnit.SECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,249 @@
+package com.mobiquity.metrics;
+
+import com.mobiquity.api.ItemBatch;
+import com.mobiquity.solver.CachingSolver;
+import com.mobiquity.solver.PackingSolver;
+import com.mobiquity.solver.PreFilteringSolver;
+import lombok.NonNull;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-line statistics of pack runs.
+ * <p>
+ * Packers take a {@link Line} per input line and mark the end of parsing and solving on it. Without metrics
+ * in config they get {@link Line#DISABLED}, whose calls return right away, so nothing is measured or
+ * allocated. Solver choices count the solver which reported itself in {@link ItemBatch#solvedBy()}, with
+ * {@link PreFilteringSolver#TRIVIAL} and {@link CachingSolver#CACHED} for lines answered without search.
+ * Allocated bytes come from the HotSpot thread bean and stay zero on JVMs without it. One
+ * instance can serve many runs and is exposed via {@link #registerMBean(String)} and
+ * {@link PackerMeterBinder}.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public final class PackerMetrics implements PackerMetricsMXBean {
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS = allocations();
+
+    private final long created = System.nanoTime();
+    private final LongAdder lines = new LongAdder();
+    private final LongAdder searchNodes = new LongAdder();
+    private final Histogram parseNanos = new Histogram();
+    private final Histogram solveNanos = new Histogram();
+    private final Histogram lineNanos = new Histogram();
+    private final Histogram itemsPerLine = new Histogram();
+    private final Histogram allocatedBytes = new Histogram();
+    private final ConcurrentMap<String, LongAdder> solverChoices = new ConcurrentHashMap<>();
+    private final ThreadLocal<Line> current = ThreadLocal.withInitial(() -> new Line(this));
+    private volatile CachingSolver cache;
+
+    /**
+     * Start measuring a line.
+     *
+     * @param metrics metrics to record into, may be {@code null}
+     * @return line to mark stages on
+     */
+    public static Line line(PackerMetrics metrics) {
+        return metrics == null ? Line.DISABLED : metrics.current.get().start();
+    }
+
+    /**
+     * Report hits and misses of the cache, usually the one set as run solver.
+     *
+     * @param cache cache to watch
+     * @return this metrics
+     */
+    public PackerMetrics watch(@NonNull CachingSolver cache) {
+        this.cache = cache;
+        return this;
+    }
+
+    /**
+     * Register in platform MBean server as {@code com.mobiquity:type=Packer,name=<name>}.
+     *
+     * @param name name of the bean
+     * @return registered name
+     * @throws JMException if name is taken or invalid
+     */
+    public ObjectName registerMBean(@NonNull String name) throws JMException {
+        ObjectName objectName = new ObjectName("com.mobiquity:type=Packer,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    public Histogram parseNanos() {
+        return parseNanos;
+    }
+
+    public Histogram solveNanos() {
+        return solveNanos;
+    }
+
+    public Histogram lineNanos() {
+        return lineNanos;
+    }
+
+    public Histogram itemsPerLine() {
+        return itemsPerLine;
+    }
+
+    public Histogram allocatedBytes() {
+        return allocatedBytes;
+    }
+
+    @Override
+    public long getLines() {
+        return lines.sum();
+    }
+
+    @Override
+    public double getLinesPerSecond() {
+        double seconds = (System.nanoTime() - created) / 1e9;
+        return seconds > 0 ? lines.sum() / seconds : 0;
+    }
+
+    @Override
+    public long getParseNanosP50() {
+        return parseNanos.percentile(0.5);
+    }
+
+    @Override
+    public long getParseNanosP99() {
+        return parseNanos.percentile(0.99);
+    }
+
+    @Override
+    public long getSolveNanosP50() {
+        return solveNanos.percentile(0.5);
+    }
+
+    @Override
+    public long getSolveNanosP99() {
+        return solveNanos.percentile(0.99);
+    }
+
+    @Override
+    public long getLineNanosP50() {
+        return lineNanos.percentile(0.5);
+    }
+
+    @Override
+    public long getLineNanosP99() {
+        return lineNanos.percentile(0.99);
+    }
+
+    @Override
+    public double getItemsPerLineMean() {
+        return itemsPerLine.mean();
+    }
+
+    @Override
+    public long getItemsPerLineMax() {
+        return itemsPerLine.max();
+    }
+
+    @Override
+    public long getSearchNodes() {
+        return searchNodes.sum();
+    }
+
+    @Override
+    public double getAllocatedBytesPerLineMean() {
+        return allocatedBytes.mean();
+    }
+
+    @Override
+    public long getCacheHits() {
+        CachingSolver watched = cache;
+        return watched == null ? 0 : watched.hits();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        CachingSolver watched = cache;
+        return watched == null ? 0 : watched.misses();
+    }
+
+    @Override
+    public Map<String, Long> getSolverChoices() {
+        Map<String, Long> choices = new TreeMap<>();
+        solverChoices.forEach((solver, count) -> choices.put(solver, count.sum()));
+        return choices;
+    }
+
+    private static long allocated() {
+        return ALLOCATIONS == null ? 0 : ALLOCATIONS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean allocations() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemoryEnabled()) {
+            return (com.sun.management.ThreadMXBean) bean;
+        }
+        return null;
+    }
+
+    /**
+     * Stage marks of the line being packed on the current thread.
+     */
+    public static final class Line {
+        public static final Line DISABLED = new Line(null);
+
+        private final PackerMetrics metrics;
+        private long started;
+        private long parsed;
+        private long allocatedBefore;
+
+        private Line(PackerMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        private Line start() {
+            allocatedBefore = allocated();
+            started = System.nanoTime();
+            return this;
+        }
+
+        /**
+         * Mark end of parsing.
+         */
+        public void parsed() {
+            if (metrics == null) {
+                return;
+            }
+            parsed = System.nanoTime();
+            metrics.parseNanos.record(parsed - started);
+        }
+
+        /**
+         * Mark end of solving.
+         *
+         * @param batch  solved line
+         * @param solver solver of the run, counted when no solver reported itself on the batch
+         */
+        public void solved(ItemBatch batch, PackingSolver solver) {
+            if (metrics == null) {
+                return;
+            }
+            long solved = System.nanoTime();
+            metrics.solveNanos.record(solved - parsed);
+            metrics.lineNanos.record(solved - started);
+            metrics.lines.increment();
+            metrics.itemsPerLine.record(batch.size());
+            metrics.searchNodes.add(batch.searchNodes());
+            String solvedBy = batch.solvedBy();
+            metrics.solverChoices.computeIfAbsent(solvedBy != null ? solvedBy : solver.getClass().getSimpleName(),
+                    name -> new LongAdder()).increment();
+            metrics.allocatedBytes.record(allocated() - allocatedBefore);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.mobiquity.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link PackerMetrics}. Latencies are in nanoseconds.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public interface PackerMetricsMXBean {
+
+    long getLines();
+
+    double getLinesPerSecond();
+
+    long getParseNanosP50();
+
+    long getParseNanosP99();
+
+    long getSolveNanosP50();
+
+    long getSolveNanosP99();
+
+    long getLineNanosP50();
+
+    long getLineNanosP99();
+
+    double getItemsPerLineMean();
+
+    long getItemsPerLineMax();
+
+    long getSearchNodes();
+
+    double getAllocatedBytesPerLineMean();
+
+    long getCacheHits();
+
+    long getCacheMisses();
+
+    Map<String, Long> getSolverChoices();
+}
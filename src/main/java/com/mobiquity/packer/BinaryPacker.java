@@ -0,0 +1,111 @@
+package com.mobiquity.packer;
+
+import com.mobiquity.api.ItemBatch;
+import com.mobiquity.codec.PackageReader;
+import com.mobiquity.codec.ResultWriter;
+import com.mobiquity.exception.APIException;
+import com.mobiquity.metrics.PackerMetrics;
+import com.mobiquity.utils.LineParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.mobiquity.utils.AlgoUtils.batchSink;
+
+/**
+ * Packs records of the binary format: read columns into a batch with the same validation as text lines,
+ * apply run budget, solve, write chosen input positions as a bitmask. Runs on the calling thread.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+final class BinaryPacker {
+    private final PackerConfig config;
+    private final LinePacker lines;
+    private final PackerMetrics metrics;
+    private final ItemBatch batch = new ItemBatch();
+    private final LineParser.LineSink validated;
+    private final LineParser.LineSink tracking;
+    private int[] positions = new int[16];
+    private int position;
+
+    BinaryPacker(PackerConfig config) {
+        this.config = config;
+        lines = new LinePacker(config);
+        metrics = config.getMetrics();
+        validated = batchSink(batch, config.validateMaxWeight(), config.validateMaxPrice(),
+                config.validateMaxAmount());
+        tracking = new LineParser.LineSink() {
+            @Override
+            public void capacity(long weight, int weightScale) throws APIException {
+                validated.capacity(weight, weightScale);
+            }
+
+            @Override
+            public void item(int index, long weight, int weightScale, long price, int priceScale)
+                    throws APIException {
+                int size = batch.size();
+                validated.item(index, weight, weightScale, price, priceScale);
+                if (batch.size() > size) {
+                    if (size == positions.length) {
+                        positions = Arrays.copyOf(positions, size * 2);
+                    }
+                    positions[size] = position;
+                }
+                position++;
+            }
+        };
+    }
+
+    /**
+     * @param in  package records
+     * @param out target for result records, flushed at the end and on any failure, so results of earlier
+     *            packages are never lost
+     * @return invalid packages skipped by {@link ErrorPolicy#SKIP_AND_REPORT}
+     * @throws APIException if streams fail or input is malformed, or on invalid package with
+     *                      {@link ErrorPolicy#FAIL_FAST}
+     */
+    List<LineError> pack(InputStream in, OutputStream out) throws APIException {
+        try {
+            ResultWriter results = new ResultWriter(out);
+            try {
+                return pack(new PackageReader(in), results);
+            } finally {
+                results.flush();
+            }
+        } catch (IOException e) {
+            throw new APIException(e.getMessage(), e);
+        }
+    }
+
+    private List<LineError> pack(PackageReader packages, ResultWriter results) throws IOException, APIException {
+        List<LineError> errors = new ArrayList<>();
+        long number = 0;
+        while (packages.next()) {
+            number++;
+            PackerMetrics.Line measured = PackerMetrics.line(metrics);
+            batch.reset();
+            position = 0;
+            try {
+                packages.replay(tracking);
+            } catch (APIException e) {
+                if (config.getErrorPolicy() == ErrorPolicy.FAIL_FAST) {
+                    throw e;
+                }
+                errors.add(new LineError(number, e.getMessage()));
+                results.writeError();
+                continue;
+            }
+            int found = lines.solve(batch, measured);
+            int[] selection = batch.selection();
+            for (int i = 0; i < found; i++) {
+                selection[i] = positions[selection[i]];
+            }
+            results.write(packages.size(), selection, found, batch.approximate());
+        }
+        return errors;
+    }
+}
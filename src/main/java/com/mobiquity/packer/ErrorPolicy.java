@@ -0,0 +1,17 @@
+package com.mobiquity.packer;
+
+/**
+ * What a pack run does with a line which cannot be parsed or validated.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public enum ErrorPolicy {
+    /**
+     * Stop reading and solving at the first invalid line and throw its error.
+     */
+    FAIL_FAST,
+    /**
+     * Write {@link PackerConfig#getErrorMarker()} for invalid lines, go on and report them all at the end.
+     */
+    SKIP_AND_REPORT
+}
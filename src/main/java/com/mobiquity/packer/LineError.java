@@ -0,0 +1,23 @@
+package com.mobiquity.packer;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Invalid input line skipped by {@link ErrorPolicy#SKIP_AND_REPORT}.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+@AllArgsConstructor
+@Getter
+@EqualsAndHashCode
+@ToString
+public final class LineError {
+    /**
+     * Line number, starting from 1.
+     */
+    private final long line;
+    private final String message;
+}
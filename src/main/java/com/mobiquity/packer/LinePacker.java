@@ -0,0 +1,85 @@
+package com.mobiquity.packer;
+
+import com.mobiquity.api.ItemBatch;
+import com.mobiquity.exception.APIException;
+import com.mobiquity.metrics.PackerMetrics;
+import com.mobiquity.solver.PackingSolver;
+import com.mobiquity.utils.FunctionalUtils.AmountPredicate;
+import com.mobiquity.utils.FunctionalUtils.DecimalPredicate;
+import com.mobiquity.utils.ScratchArena;
+
+import java.nio.ByteBuffer;
+
+import static com.mobiquity.utils.AlgoUtils.appendIndexes;
+import static com.mobiquity.utils.AlgoUtils.readBatch;
+
+/**
+ * Packs text lines of a single run: parse into a batch borrowed from the {@link ScratchArena} of the thread,
+ * apply run budget, solve, format. Lines come as strings or as byte ranges of a mapped file, and
+ * {@link #solve(ItemBatch, PackerMetrics.Line)} is the same step for batches read by other formats. Safe to
+ * call from many threads at once.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+final class LinePacker {
+    private static final ScratchArena.Slot BATCH = ScratchArena.slot("packer.batch");
+
+    private final PackingSolver solver;
+    private final DecimalPredicate validateMaxWeight;
+    private final DecimalPredicate validateMaxPrice;
+    private final AmountPredicate validateMaxAmount;
+    private final RunBudget budget;
+    private final PackerMetrics metrics;
+
+    LinePacker(PackerConfig config) {
+        solver = config.getSolver();
+        validateMaxWeight = config.validateMaxWeight();
+        validateMaxPrice = config.validateMaxPrice();
+        validateMaxAmount = config.validateMaxAmount();
+        budget = new RunBudget(config);
+        metrics = config.getMetrics();
+    }
+
+    /**
+     * @param line line to pack
+     * @return result line
+     * @throws APIException if line is invalid
+     */
+    String pack(CharSequence line) throws APIException {
+        PackerMetrics.Line measured = PackerMetrics.line(metrics);
+        ItemBatch batch = ScratchArena.get().object(BATCH, ItemBatch::new).reset();
+        readBatch(line, batch, validateMaxWeight, validateMaxPrice, validateMaxAmount);
+        int found = solve(batch, measured);
+        return budget.mark(appendIndexes(new StringBuilder(), batch, found), batch).toString();
+    }
+
+    /**
+     * @param buffer line source
+     * @param from   first byte of the line
+     * @param to     end of the line, exclusive
+     * @param result receiver of the result line, untouched if line is invalid
+     * @throws APIException if line is invalid
+     */
+    void pack(ByteBuffer buffer, int from, int to, StringBuilder result) throws APIException {
+        PackerMetrics.Line measured = PackerMetrics.line(metrics);
+        ItemBatch batch = ScratchArena.get().object(BATCH, ItemBatch::new).reset();
+        readBatch(buffer, from, to, batch, validateMaxWeight, validateMaxPrice, validateMaxAmount);
+        int found = solve(batch, measured);
+        budget.mark(appendIndexes(result, batch, found), batch);
+    }
+
+    /**
+     * Apply run budget to a parsed batch and solve it.
+     *
+     * @param batch    parsed line
+     * @param measured metrics of the line, parsing done
+     * @return amount of chosen positions
+     */
+    int solve(ItemBatch batch, PackerMetrics.Line measured) {
+        measured.parsed();
+        budget.limit(batch);
+        int found = solver.solve(batch);
+        measured.solved(batch, solver);
+        return found;
+    }
+}
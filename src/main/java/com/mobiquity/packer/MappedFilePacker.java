@@ -0,0 +1,189 @@
+package com.mobiquity.packer;
+
+import com.mobiquity.exception.APIException;
+import com.mobiquity.utils.Workers;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Packs a file from filesystem by memory-mapped byte ranges.
+ * <p>
+ * The file is cut into shards of about {@link PackerConfig#getShardSize()} bytes, every cut moved forward to
+ * the next line start. Each shard is mapped and parsed straight from the mapped buffer on a worker thread,
+ * and the result segments are written in shard order. Only a few shards per worker are in flight at once.
+ * Shards run on {@link Workers#shared()} in one lane per configured thread, a shard starting once the one
+ * before it in its lane is done.
+ * <p>
+ * Under {@link ErrorPolicy#FAIL_FAST} an invalid line stops every later shard and no new ones are mapped;
+ * every line before it, its own shard included, is still written. Skipped lines get their file line number
+ * once the shards before them are written. Lines themselves are packed by {@link LinePacker}.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+final class MappedFilePacker {
+    private static final int SCAN_BUFFER = 4096;
+    private static final int SHARDS_PER_THREAD = 2;
+
+    private MappedFilePacker() {
+    }
+
+    static List<LineError> pack(Path path, Writer writer, PackerConfig config) throws APIException, IOException {
+        int threads = Math.max(config.getThreads(), 1);
+        CompletableFuture<?>[] lanes = new CompletableFuture<?>[threads];
+        Arrays.fill(lanes, CompletableFuture.completedFuture(null));
+        LinePacker lines = new LinePacker(config);
+        AtomicLong failedShard = new AtomicLong(Long.MAX_VALUE);
+        List<LineError> errors = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = 0;
+            long shardNumber = 0;
+            long linesBefore = 0;
+            boolean first = true;
+            Deque<Future<Segment>> inFlight = new ArrayDeque<>();
+            while (start < size || !inFlight.isEmpty()) {
+                while (start < size && inFlight.size() < threads * SHARDS_PER_THREAD
+                        && failedShard.get() == Long.MAX_VALUE) {
+                    long end = lineStartAfter(channel, Math.min(size, start + config.getShardSize()), size);
+                    if (end - start > Integer.MAX_VALUE) {
+                        throw new APIException("Line too long.");
+                    }
+                    MappedByteBuffer shard = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                    long number = shardNumber++;
+                    int lane = (int) (number % threads);
+                    CompletableFuture<Segment> task = lanes[lane].handle((done, failure) -> shard)
+                            .thenApplyAsync(mapped -> packShard(mapped, number, config, lines, failedShard),
+                                    Workers.shared());
+                    lanes[lane] = task;
+                    inFlight.add(task);
+                    start = end;
+                }
+                Segment segment = await(inFlight.poll());
+                if (segment.lines > 0) {
+                    if (!first) {
+                        writer.write('\n');
+                    }
+                    writer.append(segment.text);
+                    first = false;
+                }
+                for (LineError error : segment.errors) {
+                    errors.add(new LineError(linesBefore + error.getLine(), error.getMessage()));
+                }
+                if (segment.failure != null) {
+                    throw segment.failure;
+                }
+                linesBefore += segment.lines;
+            }
+            return errors;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new APIException("Interrupted.", e);
+        } finally {
+            // stop shards still in flight at their next line
+            failedShard.set(-1);
+        }
+    }
+
+    /**
+     * @return packed lines of the shard; under {@link ErrorPolicy#FAIL_FAST} only those before the first
+     * invalid one, which is kept as the segment failure
+     */
+    private static Segment packShard(ByteBuffer shard, long number, PackerConfig config, LinePacker lines,
+                                     AtomicLong failedShard) {
+        boolean skip = config.getErrorPolicy() == ErrorPolicy.SKIP_AND_REPORT;
+        Segment segment = new Segment();
+        int limit = shard.limit();
+        int lineStart = 0;
+        for (int i = 0; i <= limit; i++) {
+            if (i < limit && shard.get(i) != '\n' || i == limit && lineStart == limit) {
+                continue;
+            }
+            if (failedShard.get() < number) {
+                throw new CancellationException();
+            }
+            int length = segment.text.length();
+            if (segment.lines++ > 0) {
+                segment.text.append('\n');
+            }
+            try {
+                lines.pack(shard, lineStart, i, segment.text);
+            } catch (APIException e) {
+                if (!skip) {
+                    failedShard.accumulateAndGet(number, Math::min);
+                    segment.text.setLength(length);
+                    segment.lines--;
+                    segment.failure = e;
+                    return segment;
+                }
+                segment.errors.add(new LineError(segment.lines, e.getMessage()));
+                segment.text.append(config.getErrorMarker());
+            }
+            lineStart = i + 1;
+        }
+        return segment;
+    }
+
+    private static Segment await(Future<Segment> shard)
+            throws APIException, IOException, InterruptedException {
+        try {
+            return shard.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof APIException) {
+                throw (APIException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new APIException(cause.getMessage(), e);
+        }
+    }
+
+    private static final class Segment {
+        private final StringBuilder text = new StringBuilder();
+        private final List<LineError> errors = new ArrayList<>();
+        private long lines;
+        private APIException failure;
+    }
+
+    /**
+     * @return position right after the first line break at or after {@code position - 1}, or file size
+     */
+    private static long lineStartAfter(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer scan = ByteBuffer.allocate(SCAN_BUFFER);
+        long pos = position - 1;
+        while (pos >= 0 && pos < size) {
+            scan.clear();
+            int read = channel.read(scan, pos);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (scan.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += read;
+        }
+        return size;
+    }
+}
@@ -1,34 +1,60 @@
 package com.mobiquity.packer;
 
-import com.mobiquity.api.Item;
 import com.mobiquity.exception.APIException;
-import com.mobiquity.utils.FunctionalUtils;
+import com.mobiquity.solver.PackingSolver;
+import com.mobiquity.utils.OrderedPipeline;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.File;
-import java.math.BigDecimal;
+import java.io.*;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.Predicate;
+import java.util.function.Consumer;
 
 import static com.mobiquity.utils.AlgoUtils.*;
 import static com.mobiquity.utils.FunctionalUtils.*;
 
 @Slf4j
 public final class Packer {
-    private static final BigDecimal MAX_WEIGHT = BigDecimal.valueOf(100);
-    private static final BigDecimal MAX_COST = BigDecimal.valueOf(100);
-    private static final int MAX_ITEM_AMOUNT = 15;
+    private static final PackerConfig DEFAULTS = PackerConfig.defaults();
+    private static final LinePacker DEFAULT_LINES = new LinePacker(DEFAULTS);
 
     private Packer() {
     }
 
+    /**
+     * Pack every line of the file with the default run settings.
+     *
+     * @param filePath classpath resource to read
+     * @return result lines
+     * @throws APIException if file cannot be read or any line is invalid
+     */
     public static String pack(@NonNull String filePath) throws APIException {
+        return pack(filePath, PackerConfig.defaults());
+    }
+
+    /**
+     * Pack every line of the file with a specific solver instead of the per-line choice.
+     *
+     * @param filePath classpath resource to read
+     * @param solver   solver to use for every line
+     * @return result lines
+     * @throws APIException if file cannot be read or any line is invalid
+     */
+    public static String pack(@NonNull String filePath, @NonNull PackingSolver solver) throws APIException {
+        return pack(filePath, PackerConfig.builder().solver(solver).build());
+    }
+
+    private static String pack(String filePath, PackerConfig config) throws APIException {
         AtomicReference<Exception> fileReadException = new AtomicReference<>();
         return safe(filePath)
                 .convert(Thread.currentThread().getContextClassLoader()::getResource,
@@ -38,30 +64,331 @@ public final class Packer {
                 .convert(File::new)
                 .is(File::exists)
                 .is(File::canRead)
-                .convert(f -> new Scanner(f, StandardCharsets.UTF_8), fileReadException::set)
-                .convert(FunctionalUtils::scanLines)
-                .convert(ls -> readLines(ls,
-                        l -> listIndexesWithMaxPrice(l,
-                                validateMaxWeight(),
-                                validateMaxPrice(),
-                                validateMaxAmount())),
-                        fileReadException::set)
-                .convert(FunctionalUtils::mergeLines)
+                .convert(File::toPath)
+                .convert(p -> {
+                    StringWriter writer = new StringWriter();
+                    pack(p, writer, config);
+                    return writer.toString();
+                }, fileReadException::set)
                 .orThrow(() -> safe(fileReadException.get())
                         .convert(Throwable::getMessage)
                         .convert(APIException::new)
                         .orDefault(() -> new APIException("Cannot read file.")));
     }
 
-    public static Predicate<BigDecimal> validateMaxWeight() {
-        return i -> MAX_WEIGHT.compareTo(i) > -1;
+    /**
+     * Pack file from filesystem, writing results of every range of lines as soon as it is solved.
+     *
+     * @param path   file to read
+     * @param writer target for result lines
+     * @throws APIException if file cannot be read or any line is invalid
+     */
+    public static void pack(@NonNull Path path, @NonNull Writer writer) throws APIException {
+        pack(path, writer, PackerConfig.defaults());
+    }
+
+    /**
+     * Pack file from filesystem with run settings. The file is memory-mapped and its line-aligned byte
+     * ranges are parsed straight from the mapping, on {@link PackerConfig#getThreads()} workers.
+     *
+     * @param path   file to read
+     * @param writer target for result lines, flushed at the end and on failure, so results of the lines
+     *               before an invalid one are never lost
+     * @param config run settings
+     * @return invalid lines skipped by {@link ErrorPolicy#SKIP_AND_REPORT}
+     * @throws APIException if file cannot be read, or on invalid line with {@link ErrorPolicy#FAIL_FAST}
+     */
+    public static List<LineError> pack(@NonNull Path path, @NonNull Writer writer, @NonNull PackerConfig config)
+            throws APIException {
+        try {
+            try {
+                return MappedFilePacker.pack(path, writer, config);
+            } finally {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            throw new APIException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Pack UTF-8 input stream into UTF-8 output stream, line by line.
+     *
+     * @param in  source lines
+     * @param out target for result lines
+     * @throws APIException if input cannot be read or any line is invalid
+     */
+    public static void pack(@NonNull InputStream in, @NonNull OutputStream out) throws APIException {
+        pack(in, out, PackerConfig.defaults());
+    }
+
+    /**
+     * Pack UTF-8 input stream into UTF-8 output stream with run settings.
+     *
+     * @param in     source lines
+     * @param out    target for result lines
+     * @param config run settings
+     * @return invalid lines skipped by {@link ErrorPolicy#SKIP_AND_REPORT}
+     * @throws APIException if input cannot be read, or on invalid line with {@link ErrorPolicy#FAIL_FAST}
+     */
+    public static List<LineError> pack(@NonNull InputStream in, @NonNull OutputStream out,
+                                       @NonNull PackerConfig config) throws APIException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        return pack(new InputStreamReader(in, StandardCharsets.UTF_8), writer, config);
+    }
+
+    /**
+     * Pack records of the binary format, see {@link com.mobiquity.codec.BinaryFormat}.
+     *
+     * @param in  package records
+     * @param out target for result records, flushed at the end
+     * @throws APIException if streams fail, input is malformed or any package is invalid
+     */
+    public static void packBinary(@NonNull InputStream in, @NonNull OutputStream out) throws APIException {
+        packBinary(in, out, PackerConfig.defaults());
+    }
+
+    /**
+     * Pack records of the binary format with run settings, on the calling thread. Limits and error policy
+     * apply as for text lines; skipped packages get an error record.
+     *
+     * @param in     package records
+     * @param out    target for result records, flushed at the end
+     * @param config run settings
+     * @return invalid packages skipped by {@link ErrorPolicy#SKIP_AND_REPORT}, numbered from 1
+     * @throws APIException if streams fail or input is malformed, or on invalid package with
+     *                      {@link ErrorPolicy#FAIL_FAST}
+     */
+    public static List<LineError> packBinary(@NonNull InputStream in, @NonNull OutputStream out,
+                                             @NonNull PackerConfig config) throws APIException {
+        return new BinaryPacker(config).pack(in, out);
+    }
+
+    /**
+     * Pack lines from reader and pass every result line to consumer as soon as it is solved.
+     * Lines before the first invalid one are already consumed when exception is thrown.
+     *
+     * @param reader  source lines
+     * @param results receiver of result lines
+     * @throws APIException if reader fails or any line is invalid
+     */
+    public static void pack(@NonNull Reader reader, @NonNull Consumer<String> results) throws APIException {
+        pack(reader, results, PackerConfig.defaults());
+    }
+
+    /**
+     * Pack lines from reader with a specific solver.
+     *
+     * @param reader  source lines
+     * @param results receiver of result lines
+     * @param solver  solver to use for every line
+     * @throws APIException if reader fails or any line is invalid
+     */
+    public static void pack(@NonNull Reader reader,
+                            @NonNull Consumer<String> results,
+                            @NonNull PackingSolver solver) throws APIException {
+        pack(reader, results, PackerConfig.builder().solver(solver).build());
+    }
+
+    /**
+     * Pack lines from reader with run settings. With more than one thread lines are solved in parallel
+     * and results are still passed to consumer in input order, on the calling thread.
+     *
+     * @param reader  source lines
+     * @param results receiver of result lines
+     * @param config  run settings
+     * @return invalid lines skipped by {@link ErrorPolicy#SKIP_AND_REPORT}
+     * @throws APIException if reader fails, or on invalid line with {@link ErrorPolicy#FAIL_FAST}
+     */
+    public static List<LineError> pack(@NonNull Reader reader,
+                                       @NonNull Consumer<String> results,
+                                       @NonNull PackerConfig config) throws APIException {
+        BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        ApiFunction<String, String> packLine = new LinePacker(config)::pack;
+        List<LineError> errors = new ArrayList<>();
+        LineErrorHandler onError = config.getErrorPolicy() == ErrorPolicy.SKIP_AND_REPORT
+                ? (number, e) -> {
+                    errors.add(new LineError(number, e.getMessage()));
+                    return config.getErrorMarker();
+                }
+                : null;
+        try {
+            if (config.getThreads() > 1) {
+                OrderedPipeline.readLines(lines, packLine, results, config.getThreads(), config.getQueueSize(),
+                        onError);
+            } else if (onError != null) {
+                readLines(lines, packLine, results, onError);
+            } else {
+                readLines(lines, packLine, results);
+            }
+            return errors;
+        } catch (IOException e) {
+            throw new APIException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Pack lines from reader into writer, one result line per input line.
+     *
+     * @param reader source lines
+     * @param writer target for result lines, flushed at the end
+     * @throws APIException if reader or writer fails or any line is invalid
+     */
+    public static void pack(@NonNull Reader reader, @NonNull Writer writer) throws APIException {
+        pack(reader, writer, PackerConfig.defaults());
+    }
+
+    /**
+     * Pack lines from reader into writer with run settings.
+     *
+     * @param reader source lines
+     * @param writer target for result lines, flushed at the end
+     * @param config run settings
+     * @return invalid lines skipped by {@link ErrorPolicy#SKIP_AND_REPORT}
+     * @throws APIException if reader or writer fails, or on invalid line with {@link ErrorPolicy#FAIL_FAST}
+     */
+    public static List<LineError> pack(@NonNull Reader reader, @NonNull Writer writer, @NonNull PackerConfig config)
+            throws APIException {
+        try {
+            List<LineError> errors = pack(reader, joinLines(writer), config);
+            writer.flush();
+            return errors;
+        } catch (IOException | UncheckedIOException e) {
+            throw new APIException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Pack a single line held in memory. Every call shares one default solver, so its pre-filter counters
+     * add up over the whole JVM; pass a config to count per run.
+     *
+     * @param line line to pack
+     * @return result line
+     * @throws APIException if line is invalid
+     */
+    public static String packLine(@NonNull CharSequence line) throws APIException {
+        return DEFAULT_LINES.pack(line);
+    }
+
+    /**
+     * Pack a single line held in memory with run settings.
+     *
+     * @param line   line to pack
+     * @param config run settings, its time budget starts with the call
+     * @return result line
+     * @throws APIException if line is invalid
+     */
+    public static String packLine(@NonNull CharSequence line, @NonNull PackerConfig config) throws APIException {
+        return new LinePacker(config).pack(line);
+    }
+
+    /**
+     * Pack lines held in memory.
+     *
+     * @param lines lines to pack
+     * @return result lines in input order
+     * @throws APIException on first invalid line
+     */
+    public static List<String> packLines(@NonNull Iterable<? extends CharSequence> lines) throws APIException {
+        return packLines(lines, PackerConfig.defaults());
+    }
+
+    /**
+     * Pack lines held in memory with run settings, on the calling thread. Details of skipped lines are
+     * reported by {@link #packLines(Iterable, Consumer, PackerConfig)}.
+     *
+     * @param lines  lines to pack
+     * @param config run settings
+     * @return result lines in input order, invalid lines replaced by error marker with
+     * {@link ErrorPolicy#SKIP_AND_REPORT}
+     * @throws APIException on first invalid line with {@link ErrorPolicy#FAIL_FAST}
+     */
+    public static List<String> packLines(@NonNull Iterable<? extends CharSequence> lines,
+                                         @NonNull PackerConfig config) throws APIException {
+        List<String> results = new ArrayList<>();
+        packLines(lines, results::add, config);
+        return results;
+    }
+
+    /**
+     * Pack lines held in memory with run settings, on the calling thread, passing every result line to
+     * consumer.
+     *
+     * @param lines   lines to pack
+     * @param results receiver of result lines, invalid lines replaced by error marker with
+     *                {@link ErrorPolicy#SKIP_AND_REPORT}
+     * @param config  run settings
+     * @return invalid lines skipped by {@link ErrorPolicy#SKIP_AND_REPORT}
+     * @throws APIException on first invalid line with {@link ErrorPolicy#FAIL_FAST}
+     */
+    public static List<LineError> packLines(@NonNull Iterable<? extends CharSequence> lines,
+                                            @NonNull Consumer<String> results,
+                                            @NonNull PackerConfig config) throws APIException {
+        LinePacker packer = new LinePacker(config);
+        boolean skip = config.getErrorPolicy() == ErrorPolicy.SKIP_AND_REPORT;
+        List<LineError> errors = new ArrayList<>();
+        long number = 0;
+        for (CharSequence line : lines) {
+            number++;
+            try {
+                results.accept(packer.pack(line));
+            } catch (APIException e) {
+                if (!skip) {
+                    throw e;
+                }
+                errors.add(new LineError(number, e.getMessage()));
+                results.accept(config.getErrorMarker());
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Pack lines held in memory on the common fork-join pool.
+     *
+     * @param lines lines to pack
+     * @return future of result lines in input order, failed with {@link APIException} on invalid line
+     */
+    public static CompletableFuture<List<String>> packAsync(@NonNull Iterable<? extends CharSequence> lines) {
+        return packAsync(lines, PackerConfig.defaults(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Pack lines held in memory on a supplied executor.
+     *
+     * @param lines    lines to pack, not copied: must not change until the future completes
+     * @param config   run settings
+     * @param executor executor to pack on
+     * @return future of result lines in input order, failed with {@link APIException} on invalid line, or
+     * with {@link RejectedExecutionException} if executor does not take the task
+     */
+    public static CompletableFuture<List<String>> packAsync(@NonNull Iterable<? extends CharSequence> lines,
+                                                            @NonNull PackerConfig config,
+                                                            @NonNull Executor executor) {
+        CompletableFuture<List<String>> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(packLines(lines, config));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public static DecimalPredicate validateMaxWeight() {
+        return DEFAULTS.validateMaxWeight();
     }
 
-    public static Predicate<BigDecimal> validateMaxPrice() {
-        return i -> MAX_COST.compareTo(i) > -1;
+    public static DecimalPredicate validateMaxPrice() {
+        return DEFAULTS.validateMaxPrice();
     }
 
-    public static Predicate<List<Item>> validateMaxAmount() {
-        return i -> i.size() < MAX_ITEM_AMOUNT;
+    public static AmountPredicate validateMaxAmount() {
+        return DEFAULTS.validateMaxAmount();
     }
 }
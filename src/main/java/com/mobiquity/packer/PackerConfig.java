@@ -0,0 +1,130 @@
+package com.mobiquity.packer;
+
+import com.mobiquity.metrics.PackerMetrics;
+import com.mobiquity.solver.PackingSolver;
+import com.mobiquity.solver.PreFilteringSolver;
+import com.mobiquity.solver.SolverSelector;
+import com.mobiquity.utils.FixedPoint;
+import com.mobiquity.utils.FunctionalUtils.AmountPredicate;
+import com.mobiquity.utils.FunctionalUtils.DecimalPredicate;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+/**
+ * Settings for a single pack run.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+@Builder(toBuilder = true)
+@Getter
+@ToString
+public final class PackerConfig {
+    /**
+     * Search steps per line unless configured otherwise; exact answers on tied lines can take far longer.
+     */
+    public static final long DEFAULT_LINE_NODE_BUDGET = 50_000_000L;
+
+    /**
+     * Solver for every line, pre-filtered and picked per line by default.
+     */
+    @NonNull
+    @Builder.Default
+    private final PackingSolver solver = new PreFilteringSolver(new SolverSelector());
+    /**
+     * Amount of solver threads, lines are solved on the calling thread when {@code 1}.
+     */
+    @Builder.Default
+    private final int threads = 1;
+    /**
+     * Maximum amount of lines read ahead of the writer in parallel mode.
+     */
+    @Builder.Default
+    private final int queueSize = 1024;
+    /**
+     * Approximate size in bytes of a memory-mapped file range parsed by one worker.
+     */
+    @Builder.Default
+    private final int shardSize = 8 << 20;
+    /**
+     * Maximum package and item weight.
+     */
+    @NonNull
+    @Builder.Default
+    private final BigDecimal maxWeight = BigDecimal.valueOf(100);
+    /**
+     * Maximum item price.
+     */
+    @NonNull
+    @Builder.Default
+    private final BigDecimal maxPrice = BigDecimal.valueOf(100);
+    /**
+     * Maximum amount of items in a line.
+     */
+    @Builder.Default
+    private final int maxItems = 15;
+    /**
+     * Maximum amount of search steps per line, {@link Long#MAX_VALUE} for no limit.
+     */
+    @Builder.Default
+    private final long lineNodeBudget = DEFAULT_LINE_NODE_BUDGET;
+    /**
+     * Time limit per line, none when {@code null}.
+     */
+    private final Duration lineTimeout;
+    /**
+     * Time limit for the whole run, none when {@code null}. Lines solved after it ends get no search time.
+     */
+    private final Duration runTimeout;
+    /**
+     * Appended to result lines which may miss the optimum: the search stopped on a limit, or an approximation
+     * solver such as {@link com.mobiquity.solver.FptasSolver} had to scale prices.
+     */
+    @NonNull
+    @Builder.Default
+    private final String approximateMarker = " ~";
+    /**
+     * Handling of invalid lines.
+     */
+    @NonNull
+    @Builder.Default
+    private final ErrorPolicy errorPolicy = ErrorPolicy.FAIL_FAST;
+    /**
+     * Result line written for an invalid line under {@link ErrorPolicy#SKIP_AND_REPORT}.
+     */
+    @NonNull
+    @Builder.Default
+    private final String errorMarker = "!";
+    /**
+     * Receiver of per-line statistics, nothing is measured when {@code null}.
+     */
+    private final PackerMetrics metrics;
+
+    public static PackerConfig defaults() {
+        return builder().build();
+    }
+
+    public DecimalPredicate validateMaxWeight() {
+        return validateMax(maxWeight);
+    }
+
+    public DecimalPredicate validateMaxPrice() {
+        return validateMax(maxPrice);
+    }
+
+    public AmountPredicate validateMaxAmount() {
+        int limit = maxItems;
+        return amount -> amount < limit;
+    }
+
+    private static DecimalPredicate validateMax(BigDecimal max) {
+        BigDecimal normalized = max.scale() < 0 ? max.setScale(0) : max;
+        long unscaledMax = normalized.unscaledValue().longValueExact();
+        int scaleMax = normalized.scale();
+        return (unscaled, scale) -> FixedPoint.compare(unscaled, scale, unscaledMax, scaleMax) < 1;
+    }
+}
@@ -0,0 +1,197 @@
+package com.mobiquity.packer;
+
+import com.mobiquity.exception.APIException;
+import lombok.NonNull;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Long-running packer which keeps one warm JVM for many jobs.
+ * <p>
+ * Jobs arrive as text commands, one per line, and every answer is flushed right away:
+ * <pre>
+ * FILE &lt;path&gt;          pack file from filesystem
+ * LINES &lt;n&gt;            pack the next n lines
+ * PING                   answered with PONG
+ * QUIT                   answered with BYE, ends the session
+ * </pre>
+ * Packed jobs are answered with {@code OK <n>} followed by n result lines, failed ones with
+ * {@code ERROR <message>}. Before serving, {@link #warmUp(int)} runs synthetic lines through the parser and
+ * the configured solver, and {@code READY} is written once it is done. Lines stay within the configured item
+ * limit, so only the paths that limit selects get compiled: under the defaults these are the bitmask and the
+ * fixed-point table solvers.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public final class PackerDaemon {
+    static final int WARM_UP_LINES = 20_000;
+    private static final long WARM_UP_SEED = 42;
+
+    private final PackerConfig config;
+
+    public PackerDaemon(@NonNull PackerConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Serve commands from standard input until {@code QUIT} or end of input.
+     *
+     * @param args not used
+     * @throws IOException if standard streams fail
+     */
+    public static void main(String[] args) throws IOException {
+        PackerDaemon daemon = new PackerDaemon(PackerConfig.defaults());
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        daemon.warmUp(WARM_UP_LINES);
+        out.write("READY\n");
+        out.flush();
+        daemon.serve(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)), out);
+    }
+
+    /**
+     * Pack synthetic lines, both from memory and through a temporary file, so parser, the solvers the
+     * configured limits select and the memory-mapped path are compiled before the first job.
+     *
+     * @param lines amount of synthetic lines
+     * @throws IOException if temporary file cannot be written
+     */
+    public void warmUp(int lines) throws IOException {
+        Random random = new Random(WARM_UP_SEED);
+        List<String> synthetic = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            synthetic.add(syntheticLine(random));
+        }
+        Path file = Files.createTempFile("packer-warm-up", ".txt");
+        try {
+            Packer.packLines(synthetic, config);
+            Files.write(file, synthetic, StandardCharsets.UTF_8);
+            Packer.pack(file, Writer.nullWriter(), config);
+        } catch (APIException e) {
+            throw new IllegalStateException("Warm-up failed: " + e.getMessage(), e);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Serve commands until {@code QUIT} or end of input.
+     *
+     * @param in  source of commands
+     * @param out target for answers
+     * @throws IOException if streams fail
+     */
+    public void serve(@NonNull BufferedReader in, @NonNull Writer out) throws IOException {
+        String command;
+        while ((command = in.readLine()) != null) {
+            if (command.isBlank()) {
+                continue;
+            }
+            int space = command.indexOf(' ');
+            String verb = space < 0 ? command : command.substring(0, space);
+            String argument = space < 0 ? "" : command.substring(space + 1).trim();
+            switch (verb) {
+                case "FILE":
+                    answer(out, () -> packFile(argument));
+                    break;
+                case "LINES":
+                    List<String> lines = readJob(in, argument);
+                    answer(out, () -> lines == null
+                            ? failed("Invalid line count.")
+                            : Packer.packLines(lines, config));
+                    break;
+                case "PING":
+                    out.write("PONG\n");
+                    break;
+                case "QUIT":
+                    out.write("BYE\n");
+                    out.flush();
+                    return;
+                default:
+                    out.write("ERROR Unknown command.\n");
+            }
+            out.flush();
+        }
+    }
+
+    private List<String> packFile(String path) throws APIException {
+        if (path.isEmpty()) {
+            return failed("Missing file path.");
+        }
+        StringWriter results = new StringWriter();
+        Packer.pack(Paths.get(path), results, config);
+        return results.getBuffer().length() == 0 ? List.of() : List.of(results.toString().split("\n", -1));
+    }
+
+    /**
+     * @return lines of the job, or {@code null} if count is invalid or input ends early
+     */
+    private static List<String> readJob(BufferedReader in, String count) throws IOException {
+        int n;
+        try {
+            n = Integer.parseInt(count);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (n < 0) {
+            return null;
+        }
+        List<String> lines = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            String line = in.readLine();
+            if (line == null) {
+                return null;
+            }
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    private static void answer(Writer out, Job job) throws IOException {
+        List<String> results;
+        try {
+            results = job.run();
+        } catch (APIException | RuntimeException e) {
+            out.write("ERROR " + String.valueOf(e.getMessage()).replace('\n', ' ') + "\n");
+            return;
+        }
+        out.write("OK " + results.size() + "\n");
+        for (String result : results) {
+            out.write(result);
+            out.write('\n');
+        }
+    }
+
+    private static List<String> failed(String message) throws APIException {
+        throw new APIException(message);
+    }
+
+    private String syntheticLine(Random random) {
+        int items = 1 + random.nextInt(Math.max(config.getMaxItems(), 1));
+        StringBuilder sb = new StringBuilder().append(1 + random.nextInt(100)).append(" :");
+        for (int i = 1; i <= items; i++) {
+            sb.append(" (").append(i)
+                    .append(',').append(1 + random.nextInt(100)).append('.').append(random.nextInt(100))
+                    .append(",€").append(1 + random.nextInt(100))
+                    .append(')');
+        }
+        return sb.toString();
+    }
+
+    @FunctionalInterface
+    private interface Job {
+        List<String> run() throws APIException;
+    }
+}
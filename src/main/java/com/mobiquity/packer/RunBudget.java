@@ -0,0 +1,55 @@
+package com.mobiquity.packer;
+
+import com.mobiquity.api.ItemBatch;
+
+/**
+ * Search limits of a single pack run.
+ * <p>
+ * Every line gets the configured node budget and a deadline which is the earlier of its own timeout and
+ * the end of the run. Without limits in config the batches are left untouched.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+final class RunBudget {
+    private final long nodeBudget;
+    private final long lineTimeout;
+    private final long runDeadline;
+    private final boolean lineTimed;
+    private final boolean runTimed;
+    private final String approximateMarker;
+
+    RunBudget(PackerConfig config) {
+        nodeBudget = config.getLineNodeBudget();
+        lineTimed = config.getLineTimeout() != null;
+        lineTimeout = lineTimed ? config.getLineTimeout().toNanos() : 0;
+        runTimed = config.getRunTimeout() != null;
+        runDeadline = runTimed ? System.nanoTime() + config.getRunTimeout().toNanos() : 0;
+        approximateMarker = config.getApproximateMarker();
+    }
+
+    /**
+     * Set limits for the next line.
+     *
+     * @param batch parsed line
+     */
+    void limit(ItemBatch batch) {
+        batch.nodeBudget(nodeBudget);
+        if (lineTimed) {
+            long deadline = System.nanoTime() + lineTimeout;
+            batch.deadline(runTimed && runDeadline - deadline < 0 ? runDeadline : deadline);
+        } else if (runTimed) {
+            batch.deadline(runDeadline);
+        }
+    }
+
+    /**
+     * Append marker when the line selection is approximate.
+     *
+     * @param sb    result builder
+     * @param batch solved line
+     * @return the builder
+     */
+    StringBuilder mark(StringBuilder sb, ItemBatch batch) {
+        return batch.approximate() ? sb.append(approximateMarker) : sb;
+    }
+}
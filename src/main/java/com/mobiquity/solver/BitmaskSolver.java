@@ -0,0 +1,80 @@
+package com.mobiquity.solver;
+
+import com.mobiquity.api.ItemBatch;
+import com.mobiquity.utils.ScratchArena;
+
+/**
+ * Exhaustive solver which checks every subset of items, encoded as a bitmask.
+ * <p>
+ * Subsets are walked in Gray-code order, so every step adds or removes a single item and the running
+ * weight and price sums stay in primitive longs. Sums are compared as (price, weight) pairs rather than as
+ * one combined value, which would overflow with fine-grained prices and capacity. Items which can never fit
+ * are dropped before the walk, and scratch arrays borrowed from the {@link ScratchArena} of the thread keep
+ * the loop free of allocations.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public final class BitmaskSolver implements PackingSolver {
+    public static final int MAX_ITEMS = 20;
+
+    private static final ScratchArena.Slot WEIGHTS = ScratchArena.slot("bitmask.weights");
+    private static final ScratchArena.Slot PRICES = ScratchArena.slot("bitmask.prices");
+    private static final ScratchArena.Slot POSITIONS = ScratchArena.slot("bitmask.positions");
+
+    @Override
+    public int solve(ItemBatch batch) {
+        batch.solvedBy(getClass().getSimpleName());
+        int[] weights = batch.weights();
+        int[] prices = batch.prices();
+        int n = batch.size();
+        int capacity = batch.capacity();
+        int[] positions = batch.selection();
+        if (n > MAX_ITEMS) {
+            throw new IllegalArgumentException("Too many items for exhaustive search: " + n);
+        }
+        ScratchArena arena = ScratchArena.get();
+        int[] usableWeights = arena.ints(WEIGHTS, MAX_ITEMS);
+        int[] usablePrices = arena.ints(PRICES, MAX_ITEMS);
+        int[] usablePositions = arena.ints(POSITIONS, MAX_ITEMS);
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            int w = weights[i];
+            if (w >= 0 && w <= capacity && prices[i] > 0) {
+                usableWeights[m] = w;
+                usablePrices[m] = prices[i];
+                usablePositions[m++] = i;
+            }
+        }
+        int bestMask = 0;
+        long bestPrice = 0;
+        long bestWeight = 0;
+        int gray = 0;
+        long weight = 0;
+        long price = 0;
+        for (int step = 1; step < 1 << m; step++) {
+            int bit = Integer.numberOfTrailingZeros(step);
+            gray ^= 1 << bit;
+            if ((gray & 1 << bit) != 0) {
+                weight += usableWeights[bit];
+                price += usablePrices[bit];
+            } else {
+                weight -= usableWeights[bit];
+                price -= usablePrices[bit];
+            }
+            if (weight <= capacity && (price > bestPrice || price == bestPrice && (weight < bestWeight
+                    || weight == bestWeight && (gray & Integer.lowestOneBit(gray ^ bestMask)) != 0))) {
+                bestPrice = price;
+                bestWeight = weight;
+                bestMask = gray;
+            }
+        }
+        batch.searchNodes(1L << m);
+        int found = 0;
+        for (int bit = 0; bit < m; bit++) {
+            if ((bestMask & 1 << bit) != 0) {
+                positions[found++] = usablePositions[bit];
+            }
+        }
+        return found;
+    }
+}
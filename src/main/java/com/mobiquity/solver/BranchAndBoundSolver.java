@@ -0,0 +1,381 @@
+package com.mobiquity.solver;
+
+import com.mobiquity.api.ItemBatch;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Depth-first branch-and-bound solver for lines with many items.
+ * <p>
+ * Items are ordered by price per weight unit, the incumbent is seeded from a greedy fill in that order, and
+ * a branch is cut once its fractional-knapsack (Dantzig) bound cannot beat the incumbent. Selections are
+ * compared as (price, weight) pairs, the bound included, so it covers the lighter-weight tie-break too
+ * without folding both into one number, which would overflow with fine-grained prices and capacity.
+ * Identical items are only taken as a prefix of their run in input order.
+ * <p>
+ * Branches which could only tie the incumbent are cut as well. The best pair is then turned into the
+ * selection including the earliest items in input order by a second pass: every item left out, in input
+ * order, is tried in with the decisions before it kept, and taken when a search for that pair succeeds.
+ * <p>
+ * Search stops early once the batch budget is spent, checked every {@value #CHECK_INTERVAL} nodes; lines
+ * without a budget are searched to the end. The incumbent is returned then, marked
+ * {@link ItemBatch#approximate()}; thanks to the greedy seed it is always a feasible selection.
+ * <p>
+ * {@link ParallelBranchAndBoundSolver} runs the same search with subtrees spread over a fork-join pool.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public final class BranchAndBoundSolver implements PackingSolver {
+    static final int CHECK_INTERVAL = 64;
+
+    @Override
+    public int solve(ItemBatch batch) {
+        batch.solvedBy(getClass().getSimpleName());
+        Tree tree = new Tree(batch, -1);
+        Search search = new Search(tree, batch, null, tree.fixed.clone());
+        tree.seed(search);
+        search.branch(0, batch.capacity(), tree.fixedPrice);
+        return finish(tree, batch, search);
+    }
+
+    /**
+     * Settle the tie-break of a finished search and write its selection into the batch.
+     *
+     * @return amount of chosen positions
+     */
+    static int finish(Tree tree, ItemBatch batch, Search search) {
+        boolean stopped = search.stopped || !earliest(tree, batch, search);
+        batch.approximate(stopped);
+        batch.searchNodes(search.nodes);
+        return select(batch, search.best);
+    }
+
+    /**
+     * Replace the best selection of the search with the earliest one of the same price and weight.
+     *
+     * @return false if the budget ran out first, the selection is still one of the best ones then
+     */
+    static boolean earliest(Tree tree, ItemBatch batch, Search search) {
+        long[] best = search.best;
+        long weight = 0;
+        long price = tree.fixedPrice;
+        for (int i = 0; i < batch.size(); i++) {
+            if (!tree.usable(i)) {
+                continue;
+            }
+            int w = batch.weight(i);
+            long p = tree.priceAt(i);
+            if ((best[i >>> 6] & 1L << i) == 0 && weight + w <= tree.capacity) {
+                Tree rest = new Tree(batch, i);
+                long[] current = rest.fixed.clone();
+                for (int word = 0; word < i >>> 6; word++) {
+                    current[word] |= best[word];
+                }
+                current[i >>> 6] |= best[i >>> 6] & (1L << i) - 1 | 1L << i;
+                Search probe = new Search(rest, batch, null, current);
+                probe.goalPrice = search.bestPrice;
+                probe.goalWeight = search.bestWeight;
+                probe.nodes = search.nodes;
+                probe.branch(0, tree.capacity - weight - w, price + p);
+                search.nodes = probe.nodes;
+                if (probe.stopped) {
+                    return false;
+                }
+                if (probe.done) {
+                    System.arraycopy(probe.best, 0, best, 0, best.length);
+                }
+            }
+            if ((best[i >>> 6] & 1L << i) != 0) {
+                weight += w;
+                price += p;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Write positions marked in selection bits into batch selection.
+     *
+     * @return amount of chosen positions
+     */
+    static int select(ItemBatch batch, long[] selection) {
+        int found = 0;
+        int[] positions = batch.selection();
+        for (int i = 0; i < batch.size(); i++) {
+            if ((selection[i >>> 6] & 1L << i) != 0) {
+                positions[found++] = i;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Usable items of a line in ratio order with prefix sums for the bound. Read-only once built.
+     */
+    static final class Tree {
+        final int capacity;
+        final int m;
+        final int words;
+        final int[] order;
+        final int[] weights;
+        final long[] prices;
+        final long[] fixed;
+        final long fixedPrice;
+        private final int[] positionWeights;
+        private final long[] positionPrices;
+        private final boolean[] same;
+        private final long[] prefixWeights;
+        private final long[] prefixPrices;
+
+        /**
+         * @param batch line to search
+         * @param after only positions above it are searched, {@code -1} for all; items without weight
+         *              are always fixed in
+         */
+        Tree(ItemBatch batch, int after) {
+            int n = batch.size();
+            capacity = batch.capacity();
+            words = (n >>> 6) + 1;
+            fixed = new long[words];
+            Integer[] usable = new Integer[n];
+            positionWeights = batch.weights();
+            positionPrices = new long[n];
+            int count = 0;
+            long free = 0;
+            for (int i = 0; i < n; i++) {
+                int w = batch.weight(i);
+                int p = batch.price(i);
+                if (w < 0 || w > capacity || p <= 0) {
+                    continue;
+                }
+                positionPrices[i] = p;
+                if (w == 0) {
+                    free += p;
+                    fixed[i >>> 6] |= 1L << i;
+                } else if (i > after) {
+                    usable[count++] = i;
+                }
+            }
+            Arrays.sort(usable, 0, count, (a, b) -> {
+                int byRatio = Long.compare(positionPrices[b] * positionWeights[a],
+                        positionPrices[a] * positionWeights[b]);
+                if (byRatio != 0) {
+                    return byRatio;
+                }
+                int byWeight = Integer.compare(positionWeights[a], positionWeights[b]);
+                return byWeight != 0 ? byWeight : Integer.compare(a, b);
+            });
+            m = count;
+            order = new int[m];
+            weights = new int[m];
+            prices = new long[m];
+            same = new boolean[m];
+            prefixWeights = new long[m + 1];
+            prefixPrices = new long[m + 1];
+            for (int k = 0; k < m; k++) {
+                order[k] = usable[k];
+                weights[k] = positionWeights[order[k]];
+                prices[k] = positionPrices[order[k]];
+                same[k] = k > 0 && weights[k] == weights[k - 1] && prices[k] == prices[k - 1];
+                prefixWeights[k + 1] = prefixWeights[k] + weights[k];
+                prefixPrices[k + 1] = prefixPrices[k] + prices[k];
+            }
+            fixedPrice = free;
+        }
+
+        /**
+         * @return true if position may be chosen and has weight
+         */
+        boolean usable(int position) {
+            return positionPrices[position] > 0 && positionWeights[position] > 0;
+        }
+
+        long priceAt(int position) {
+            return positionPrices[position];
+        }
+
+        /**
+         * An item identical to the one before it in ratio order is only taken together with that one: any
+         * other choice has the same price, the same weight and a later item.
+         */
+        boolean skip(int k, long[] current) {
+            return same[k] && (current[order[k - 1] >>> 6] & 1L << order[k - 1]) == 0;
+        }
+
+        /**
+         * Offer the greedy fill in ratio order, a feasible first incumbent.
+         *
+         * @param search search to offer to
+         */
+        void seed(Search search) {
+            long room = capacity;
+            long price = fixedPrice;
+            long[] greedy = fixed.clone();
+            for (int k = 0; k < m; k++) {
+                if (weights[k] <= room) {
+                    room -= weights[k];
+                    price += prices[k];
+                    greedy[order[k] >>> 6] |= 1L << order[k];
+                }
+            }
+            search.offer(greedy, price, capacity - room);
+        }
+
+        /**
+         * Dantzig bound: whole items in ratio order while they fit, then a fraction of the next one which
+         * fills the room exactly. The fraction adds {@code price * left / weight}; its integer part goes to
+         * the price, and the remainder scaled by {@code capacity + 1} settles the weight when prices tie.
+         *
+         * @param room       room left, a branch always weighs {@code capacity - room}
+         * @param needPrice  price to beat
+         * @param needWeight heaviest weight still accepted at exactly {@code needPrice}
+         * @return true if the branch may reach a selection above need
+         */
+        boolean reaches(int k, long room, long price, long needPrice, long needWeight) {
+            int low = k;
+            int high = m;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (prefixWeights[mid] - prefixWeights[k] <= room) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            long left = room - (prefixWeights[low] - prefixWeights[k]);
+            long total = price + prefixPrices[low] - prefixPrices[k];
+            if (low == m) {
+                return total > needPrice || total == needPrice && capacity - left <= needWeight;
+            }
+            // the item does not fit, so left < w and both products stay within long
+            long w = weights[low];
+            long fraction = prices[low] * left;
+            total += fraction / w;
+            return total > needPrice
+                    || total == needPrice && fraction % w * (capacity + 1L) / w >= capacity - needWeight;
+        }
+    }
+
+    /**
+     * State shared by searches of one line running on several threads: the best price found by any of
+     * them, spent nodes and the stop flag. The weight of that price is not shared, so searches take it as
+     * the full capacity and prune less than they could.
+     */
+    static final class Shared {
+        final AtomicLong incumbent;
+        final AtomicLong nodes = new AtomicLong();
+        volatile boolean stopped;
+
+        Shared(long incumbent) {
+            this.incumbent = new AtomicLong(incumbent);
+        }
+    }
+
+    /**
+     * Depth-first search over a subtree, keeping its own best selection. Branches are cut unless they can
+     * beat the incumbent, the shared one when there is one. With a goal set the search only looks for a
+     * selection reaching that price at that weight or lighter and ends at the first one.
+     */
+    static final class Search {
+        private final Tree tree;
+        private final ItemBatch batch;
+        private final Shared shared;
+        final long[] current;
+        final long[] best;
+        long bestPrice = -1;
+        long bestWeight;
+        long goalPrice = -1;
+        long goalWeight;
+        long nodes;
+        boolean stopped;
+        boolean done;
+
+        /**
+         * @param current selection made above the subtree, owned by the search from now on
+         */
+        Search(Tree tree, ItemBatch batch, Shared shared, long[] current) {
+            this.tree = tree;
+            this.batch = batch;
+            this.shared = shared;
+            this.current = current;
+            best = new long[tree.words];
+        }
+
+        void branch(int k, long room, long price) {
+            if (stopped || done) {
+                return;
+            }
+            if (++nodes % CHECK_INTERVAL == 0 && exhausted()) {
+                stopped = true;
+                return;
+            }
+            if (!promising(k, room, price)) {
+                return;
+            }
+            if (k == tree.m) {
+                offer(current, price, tree.capacity - room);
+                return;
+            }
+            int position = tree.order[k];
+            if (tree.weights[k] <= room && !tree.skip(k, current)) {
+                current[position >>> 6] |= 1L << position;
+                branch(k + 1, room - tree.weights[k], price + tree.prices[k]);
+                current[position >>> 6] &= ~(1L << position);
+            }
+            branch(k + 1, room, price);
+        }
+
+        void offer(long[] selection, long price, long weight) {
+            if (price > bestPrice || price == bestPrice
+                    && (weight < bestWeight || weight == bestWeight && earlier(selection, best))) {
+                bestPrice = price;
+                bestWeight = weight;
+                System.arraycopy(selection, 0, best, 0, best.length);
+                if (shared != null) {
+                    shared.incumbent.accumulateAndGet(price, Math::max);
+                }
+            }
+            if (goalPrice >= 0 && (price > goalPrice || price == goalPrice && weight <= goalWeight)) {
+                done = true;
+            }
+        }
+
+        /**
+         * @return true if the bound of the branch reaches the goal or beats the incumbent
+         */
+        boolean promising(int k, long room, long price) {
+            if (goalPrice >= 0) {
+                return tree.reaches(k, room, price, goalPrice, goalWeight);
+            }
+            long needPrice = bestPrice;
+            long needWeight = bestWeight - 1;
+            if (shared != null && shared.incumbent.get() > needPrice) {
+                needPrice = shared.incumbent.get();
+                needWeight = tree.capacity - 1;
+            }
+            return tree.reaches(k, room, price, needPrice, needWeight);
+        }
+
+        private boolean exhausted() {
+            if (shared == null) {
+                return batch.exhausted(nodes);
+            }
+            long spent = shared.nodes.addAndGet(CHECK_INTERVAL);
+            if (shared.stopped || batch.exhausted(spent)) {
+                shared.stopped = true;
+            }
+            return shared.stopped;
+        }
+
+        static boolean earlier(long[] selection, long[] other) {
+            for (int w = 0; w < selection.length; w++) {
+                long diff = selection[w] ^ other[w];
+                if (diff != 0) {
+                    return (selection[w] & Long.lowestOneBit(diff)) != 0;
+                }
+            }
+            return false;
+        }
+    }
+}
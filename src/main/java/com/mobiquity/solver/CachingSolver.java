@@ -0,0 +1,166 @@
+package com.mobiquity.solver;
+
+import com.mobiquity.api.ItemBatch;
+import lombok.NonNull;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Solver decorator which remembers selections of already solved lines.
+ * <p>
+ * The key is the normalized line: capacity, scales and every (weight, price) pair in input order. Item
+ * indexes are left out, since the selection is kept as positions and the same positions are right for any
+ * indexes. Entries live in LRU segments picked by key hash, each guarded by its own lock, so parallel runs
+ * rarely wait on each other. The total amount of entries never exceeds the configured size. Approximate
+ * selections of lines which ran out of budget are never cached.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public final class CachingSolver implements PackingSolver {
+    /**
+     * Reported as {@link ItemBatch#solvedBy()} of lines answered from cache.
+     */
+    public static final String CACHED = "cached";
+    private static final int SEGMENTS = 16;
+
+    private final PackingSolver delegate;
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param delegate solver for lines missing in cache
+     * @param maxSize  maximum amount of cached lines
+     */
+    public CachingSolver(@NonNull PackingSolver delegate, int maxSize) {
+        if (maxSize < SEGMENTS) {
+            throw new IllegalArgumentException("Cache size must be at least " + SEGMENTS + ".");
+        }
+        this.delegate = delegate;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(maxSize / SEGMENTS + (i < maxSize % SEGMENTS ? 1 : 0));
+        }
+    }
+
+    @Override
+    public int solve(ItemBatch batch) {
+        Key key = Key.of(batch);
+        Segment segment = segments[(int) (key.hash >>> 60)];
+        int[] cached;
+        synchronized (segment) {
+            cached = segment.get(key);
+        }
+        if (cached != null) {
+            hits.increment();
+            batch.solvedBy(CACHED);
+            System.arraycopy(cached, 0, batch.selection(), 0, cached.length);
+            return cached.length;
+        }
+        misses.increment();
+        int found = delegate.solve(batch);
+        if (batch.approximate()) {
+            return found;
+        }
+        int[] selection = Arrays.copyOf(batch.selection(), found);
+        synchronized (segment) {
+            segment.put(key, selection);
+        }
+        return found;
+    }
+
+    @Override
+    public PackingSolver choose(ItemBatch batch) {
+        return delegate.choose(batch);
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private final class Segment extends LinkedHashMap<Key, int[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        Segment(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, int[]> eldest) {
+            if (size() > maxSize) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class Key {
+        private final int[] values;
+        private final long hash;
+
+        private Key(int[] values, long hash) {
+            this.values = values;
+            this.hash = hash;
+        }
+
+        static Key of(ItemBatch batch) {
+            int n = batch.size();
+            int[] values = new int[3 + 2 * n];
+            values[0] = batch.capacity();
+            values[1] = batch.weightScale();
+            values[2] = batch.priceScale();
+            int[] weights = batch.weights();
+            int[] prices = batch.prices();
+            for (int i = 0; i < n; i++) {
+                values[3 + 2 * i] = weights[i];
+                values[4 + 2 * i] = prices[i];
+            }
+            long hash = 0x9E3779B97F4A7C15L;
+            for (int value : values) {
+                hash = mix(hash ^ value);
+            }
+            return new Key(values, hash);
+        }
+
+        private static long mix(long h) {
+            h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+            h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+            return h ^ (h >>> 33);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).hash == hash && Arrays.equals(((Key) o).values, values);
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (hash ^ (hash >>> 32));
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.mobiquity.solver;
+
+import com.mobiquity.api.ItemBatch;
+import com.mobiquity.utils.ScratchArena;
+
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * 0/1 knapsack solver over fixed-point weights and prices.
+ * <p>
+ * Capacity {@code 100.00} in hundredths becomes a table of {@code 10001} cells. Every item gets the combined
+ * value {@code price * (capacity + 1) - weight}: maximizing the sum picks the highest price first and the
+ * lowest total weight on a price tie. Items are folded in from the last one, so the reconstruction can take
+ * every earlier item that still leads to the optimum.
+ * <p>
+ * The combined values of a line must sum within a {@code long}. {@link SolverSelector} keeps tables small
+ * enough for that; larger tables of fine-grained prices are rejected rather than solved wrong.
+ * <p>
+ * Both the value row and the take bits are borrowed from the {@link ScratchArena} of the thread; a value row
+ * above {@link ScratchArena#OFF_HEAP_BYTES} lives in native memory.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public final class FixedPointDpSolver implements PackingSolver {
+    private static final ScratchArena.Slot BEST = ScratchArena.slot("dp.best");
+    private static final ScratchArena.Slot TAKE = ScratchArena.slot("dp.take");
+
+    @Override
+    public int solve(ItemBatch batch) {
+        batch.solvedBy(getClass().getSimpleName());
+        int capacity = batch.capacity();
+        if (capacity < 0) {
+            return 0;
+        }
+        return Table.fill(batch, capacity, capacity + 1L).select(capacity, batch.selection());
+    }
+
+    /**
+     * Filled table which answers any capacity up to the one it was built for. The table is valid until the
+     * next fill on the same thread.
+     */
+    static final class Table {
+        private final int[] weights;
+        private final int n;
+        private final int words;
+        private final long[] take;
+
+        private Table(int[] weights, int n, int words, long[] take) {
+            this.weights = weights;
+            this.n = n;
+            this.words = words;
+            this.take = take;
+        }
+
+        /**
+         * @param batch    items to fold in
+         * @param capacity largest capacity to answer
+         * @param factor   price multiplier, above any weight which fits into capacity
+         * @return filled table
+         * @throws IllegalArgumentException if combined values could overflow
+         */
+        static Table fill(ItemBatch batch, int capacity, long factor) {
+            int n = batch.size();
+            long total = 0;
+            for (int i = 0; i < n; i++) {
+                total += Math.max(batch.price(i), 0);
+            }
+            if (Math.multiplyHigh(total, factor) != 0 || total * factor < 0) {
+                throw new IllegalArgumentException("Prices too large for fixed-point table: " + total + " * " + factor);
+            }
+            int words = (capacity >>> 6) + 1;
+            ScratchArena arena = ScratchArena.get();
+            long[] take = arena.longs(TAKE, n * words);
+            Arrays.fill(take, 0, n * words, 0);
+            if (ScratchArena.offHeap(capacity + 1)) {
+                LongBuffer best = arena.directLongs(BEST, capacity + 1);
+                for (int c = 0; c <= capacity; c++) {
+                    best.put(c, 0);
+                }
+                fold(batch, capacity, factor, words, best, take);
+            } else {
+                long[] best = arena.longs(BEST, capacity + 1);
+                Arrays.fill(best, 0, capacity + 1, 0);
+                fold(batch, capacity, factor, words, best, take);
+            }
+            return new Table(batch.weights(), n, words, take);
+        }
+
+        private static void fold(ItemBatch batch, int capacity, long factor, int words, long[] best, long[] take) {
+            int[] weights = batch.weights();
+            int[] prices = batch.prices();
+            for (int i = batch.size() - 1; i >= 0; i--) {
+                int w = weights[i];
+                long v = prices[i] * factor - w;
+                if (w < 0 || w > capacity || v <= 0) {
+                    continue;
+                }
+                int row = i * words;
+                for (int c = capacity; c >= w; c--) {
+                    long candidate = best[c - w] + v;
+                    if (candidate >= best[c]) {
+                        best[c] = candidate;
+                        take[row + (c >>> 6)] |= 1L << c;
+                    }
+                }
+            }
+        }
+
+        private static void fold(ItemBatch batch, int capacity, long factor, int words, LongBuffer best,
+                                 long[] take) {
+            int[] weights = batch.weights();
+            int[] prices = batch.prices();
+            for (int i = batch.size() - 1; i >= 0; i--) {
+                int w = weights[i];
+                long v = prices[i] * factor - w;
+                if (w < 0 || w > capacity || v <= 0) {
+                    continue;
+                }
+                int row = i * words;
+                for (int c = capacity; c >= w; c--) {
+                    long candidate = best.get(c - w) + v;
+                    if (candidate >= best.get(c)) {
+                        best.put(c, candidate);
+                        take[row + (c >>> 6)] |= 1L << c;
+                    }
+                }
+            }
+        }
+
+        /**
+         * @param capacity  capacity to answer, not above the table one
+         * @param positions receiver for chosen positions
+         * @return amount of chosen positions
+         */
+        int select(int capacity, int[] positions) {
+            int found = 0;
+            int c = capacity;
+            for (int i = 0; i < n; i++) {
+                if ((take[i * words + (c >>> 6)] & (1L << c)) != 0) {
+                    positions[found++] = i;
+                    c -= weights[i];
+                }
+            }
+            return found;
+        }
+    }
+}
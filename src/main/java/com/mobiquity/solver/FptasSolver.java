@@ -0,0 +1,210 @@
+package com.mobiquity.solver;
+
+import com.mobiquity.api.ItemBatch;
+import com.mobiquity.utils.ScratchArena;
+
+import java.util.Arrays;
+
+/**
+ * Approximation solver whose total price is at least {@code (1 - epsilon)} of the optimum.
+ * <p>
+ * A greedy fill by price per weight unit gives a lower bound {@code L} with {@code L <= OPT <= 2L}. Prices
+ * are divided by {@code K = epsilon * L / n} and rounded down, and a table over the scaled total price keeps
+ * the lowest weight reaching every total. Rounding loses less than {@code K} per item, so at most
+ * {@code epsilon * OPT} overall. The table has {@code 2n / epsilon} columns whatever the weight precision,
+ * which keeps lines with thousands of items affordable. Selections are marked
+ * {@link ItemBatch#approximate()} whenever prices had to be scaled, so packers append the approximate marker
+ * to them as to any other selection which may miss the optimum.
+ * <p>
+ * Take bits of a whole line are kept only up to {@value #MAX_TAKE_WORDS} words. Larger lines are folded in
+ * blocks of about {@code sqrt(32n)} items: the table row at every block boundary is kept, and the take bits
+ * of one block at a time are rebuilt from it while the selection is read. Memory then stays near
+ * {@code columns * sqrt(2n)} bytes instead of {@code columns * n / 8}, for up to twice the folding time.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public final class FptasSolver implements PackingSolver {
+    static final int MAX_TAKE_WORDS = 1 << 22;
+    private static final int NONE = Integer.MAX_VALUE;
+    private static final ScratchArena.Slot LIGHTEST = ScratchArena.slot("fptas.lightest");
+    private static final ScratchArena.Slot ROWS = ScratchArena.slot("fptas.rows");
+    private static final ScratchArena.Slot TAKE = ScratchArena.slot("fptas.take");
+
+    private final double epsilon;
+    private final int maxTakeWords;
+
+    /**
+     * @param epsilon allowed relative loss of total price, between 0 and 1
+     */
+    public FptasSolver(double epsilon) {
+        this(epsilon, MAX_TAKE_WORDS);
+    }
+
+    FptasSolver(double epsilon, int maxTakeWords) {
+        if (!(epsilon > 0 && epsilon < 1)) {
+            throw new IllegalArgumentException("Epsilon must be between 0 and 1.");
+        }
+        this.epsilon = epsilon;
+        this.maxTakeWords = maxTakeWords;
+    }
+
+    @Override
+    public int solve(ItemBatch batch) {
+        batch.solvedBy(getClass().getSimpleName());
+        int n = batch.size();
+        int capacity = batch.capacity();
+        int[] weights = batch.weights();
+        int[] prices = batch.prices();
+        int[] positions = batch.selection();
+        batch.approximate(false);
+        Integer[] usable = new Integer[n];
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            if (weights[i] >= 0 && weights[i] <= capacity && prices[i] > 0) {
+                usable[m++] = i;
+            }
+        }
+        if (m == 0) {
+            return 0;
+        }
+        long lower = greedyPrice(usable, m, weights, prices, capacity);
+        double scale = Math.max(1, epsilon * lower / m);
+        long[] scaled = new long[n];
+        long columns = 0;
+        for (int k = 0; k < m; k++) {
+            int i = usable[k];
+            scaled[i] = (long) (prices[i] / scale);
+            columns += scaled[i];
+        }
+        int top = Math.toIntExact(Math.min(columns, (long) (2 * lower / scale)));
+        Table table = new Table(usable, scaled, weights, capacity, top);
+        int block = (long) m * table.words <= maxTakeWords ? m : Math.min(m, (int) Math.ceil(Math.sqrt(32.0 * m)));
+        int blocks = (m + block - 1) / block;
+        ScratchArena arena = ScratchArena.get();
+        int[] rows = arena.ints(ROWS, Math.toIntExact((long) Math.max(blocks - 2, 0) * (top + 1)));
+        long[] take = arena.longs(TAKE, Math.toIntExact((long) block * table.words));
+
+        table.clear();
+        long reach = 0;
+        for (int b = blocks - 1; b >= 0; b--) {
+            int from = b * block;
+            if (b > 0 && b < blocks - 1) {
+                System.arraycopy(table.lightest, 0, rows, (b - 1) * (top + 1), top + 1);
+            }
+            if (b == 0) {
+                Arrays.fill(take, 0, block * table.words, 0);
+            }
+            reach = table.fold(from, Math.min(from + block, m), reach, b == 0 ? take : null);
+        }
+        int q = top;
+        while (table.lightest[q] > capacity) {
+            q--;
+        }
+
+        int found = 0;
+        long before = 0;
+        for (int b = 0; b < blocks; b++) {
+            int from = b * block;
+            int to = Math.min(from + block, m);
+            long inside = 0;
+            for (int k = from; k < to; k++) {
+                inside += scaled[usable[k]];
+            }
+            if (b > 0) {
+                if (b < blocks - 1) {
+                    System.arraycopy(rows, (b - 1) * (top + 1), table.lightest, 0, top + 1);
+                } else {
+                    table.clear();
+                }
+                Arrays.fill(take, 0, (to - from) * table.words, 0);
+                table.fold(from, to, Math.min(top, columns - before - inside), take);
+            }
+            for (int k = from; k < to; k++) {
+                int i = usable[k];
+                if ((take[(k - from) * table.words + (q >>> 6)] & (1L << q)) != 0) {
+                    positions[found++] = i;
+                    q -= scaled[i];
+                }
+            }
+            before += inside;
+        }
+        batch.approximate(scale > 1);
+        return found;
+    }
+
+    /**
+     * @return total price of the better of a greedy fill by price per weight unit and the priciest item
+     */
+    private static long greedyPrice(Integer[] usable, int m, int[] weights, int[] prices, int capacity) {
+        Integer[] order = Arrays.copyOf(usable, m);
+        Arrays.sort(order, (a, b) -> Long.compare((long) prices[b] * weights[a], (long) prices[a] * weights[b]));
+        long room = capacity;
+        long total = 0;
+        long priciest = 0;
+        for (int i : order) {
+            if (weights[i] <= room) {
+                room -= weights[i];
+                total += prices[i];
+            }
+            priciest = Math.max(priciest, prices[i]);
+        }
+        return Math.max(total, priciest);
+    }
+
+    /**
+     * Lowest weight per scaled total price, over the items folded in so far.
+     */
+    private static final class Table {
+        private final Integer[] usable;
+        private final long[] scaled;
+        private final int[] weights;
+        private final int capacity;
+        private final int top;
+        private final int words;
+        private final int[] lightest;
+
+        Table(Integer[] usable, long[] scaled, int[] weights, int capacity, int top) {
+            this.usable = usable;
+            this.scaled = scaled;
+            this.weights = weights;
+            this.capacity = capacity;
+            this.top = top;
+            this.words = (top >>> 6) + 1;
+            this.lightest = ScratchArena.get().ints(LIGHTEST, top + 1);
+        }
+
+        /**
+         * Reset to the empty selection.
+         */
+        void clear() {
+            lightest[0] = 0;
+            Arrays.fill(lightest, 1, top + 1, NONE);
+        }
+
+        /**
+         * Fold usable items {@code [from, to)} in, from the last one. Totals above capacity are never kept.
+         *
+         * @param reach highest total reachable by the items already folded in
+         * @param take  receiver of take bits, one row per item from {@code from}, or {@code null}
+         * @return highest total reachable after folding
+         */
+        long fold(int from, int to, long reach, long[] take) {
+            for (int k = to - 1; k >= from; k--) {
+                int i = usable[k];
+                reach = Math.min(top, reach + scaled[i]);
+                int p = (int) Math.min(scaled[i], top + 1L);
+                int row = (k - from) * words;
+                for (int q = (int) reach; q >= p; q--) {
+                    long candidate = (long) lightest[q - p] + weights[i];
+                    if (candidate <= capacity && candidate <= lightest[q]) {
+                        lightest[q] = (int) candidate;
+                        if (take != null) {
+                            take[row + (q >>> 6)] |= 1L << q;
+                        }
+                    }
+                }
+            }
+            return reach;
+        }
+    }
+}
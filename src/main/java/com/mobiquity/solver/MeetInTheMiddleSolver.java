@@ -0,0 +1,194 @@
+package com.mobiquity.solver;
+
+import com.mobiquity.api.ItemBatch;
+import com.mobiquity.utils.ScratchArena;
+
+import java.util.Arrays;
+
+/**
+ * Exact solver for lines whose capacity is too fine-grained for a fixed-point table.
+ * <p>
+ * Usable items are split in two halves. Every subset of the upper half is enumerated, sorted by weight and
+ * pruned to a Pareto front of strictly increasing prices; every subset of the lower half then takes the best
+ * front entry which still fits by binary search. Work grows as {@code 2^(n/2)} and does not depend on the
+ * weight precision at all. Sums are compared as (price, weight) pairs, so fine-grained prices and capacity
+ * cannot overflow them. Subset arrays, up to {@code 2^20} entries each, are borrowed from the
+ * {@link ScratchArena} of the thread.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public final class MeetInTheMiddleSolver implements PackingSolver {
+    public static final int MAX_ITEMS = 40;
+
+    private static final ScratchArena.Slot USABLE_WEIGHTS = ScratchArena.slot("mitm.usable.weights");
+    private static final ScratchArena.Slot USABLE_PRICES = ScratchArena.slot("mitm.usable.prices");
+    private static final ScratchArena.Slot USABLE_POSITIONS = ScratchArena.slot("mitm.usable.positions");
+    private static final ScratchArena.Slot SUBSET_PRICES = ScratchArena.slot("mitm.subset.prices");
+    private static final ScratchArena.Slot SUBSET_MASKS = ScratchArena.slot("mitm.subset.masks");
+    private static final ScratchArena.Slot KEYS = ScratchArena.slot("mitm.keys");
+    private static final ScratchArena.Slot FRONT_WEIGHTS = ScratchArena.slot("mitm.front.weights");
+    private static final ScratchArena.Slot FRONT_PRICES = ScratchArena.slot("mitm.front.prices");
+    private static final ScratchArena.Slot FRONT_MASKS = ScratchArena.slot("mitm.front.masks");
+
+    @Override
+    public int solve(ItemBatch batch) {
+        batch.solvedBy(getClass().getSimpleName());
+        int[] weights = batch.weights();
+        int[] prices = batch.prices();
+        int n = batch.size();
+        int capacity = batch.capacity();
+        int[] positions = batch.selection();
+        if (n > MAX_ITEMS) {
+            throw new IllegalArgumentException("Too many items for meet-in-the-middle search: " + n);
+        }
+        if (capacity < 0) {
+            return 0;
+        }
+        ScratchArena arena = ScratchArena.get();
+        int[] usableWeights = arena.ints(USABLE_WEIGHTS, n);
+        int[] usablePrices = arena.ints(USABLE_PRICES, n);
+        int[] usablePositions = arena.ints(USABLE_POSITIONS, n);
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            int w = weights[i];
+            if (w >= 0 && w <= capacity && prices[i] > 0) {
+                usableWeights[m] = w;
+                usablePrices[m] = prices[i];
+                usablePositions[m++] = i;
+            }
+        }
+        int low = m / 2;
+        Front front = Front.of(arena, usableWeights, usablePrices, low, m - low, capacity);
+
+        long bestMask = 0;
+        long bestPrice = 0;
+        long bestWeight = 0;
+        int gray = 0;
+        long weight = 0;
+        long price = 0;
+        for (int step = 0; step < 1 << low; step++) {
+            if (step > 0) {
+                int bit = Integer.numberOfTrailingZeros(step);
+                gray ^= 1 << bit;
+                if ((gray & 1 << bit) != 0) {
+                    weight += usableWeights[bit];
+                    price += usablePrices[bit];
+                } else {
+                    weight -= usableWeights[bit];
+                    price -= usablePrices[bit];
+                }
+            }
+            if (weight > capacity) {
+                continue;
+            }
+            int j = front.lastFitting(capacity - weight);
+            long totalPrice = price + front.prices[j];
+            long totalWeight = weight + front.weights[j];
+            long mask = gray | (long) front.masks[j] << low;
+            if (totalPrice > bestPrice || totalPrice == bestPrice && (totalWeight < bestWeight
+                    || totalWeight == bestWeight && (mask & Long.lowestOneBit(mask ^ bestMask)) != 0)) {
+                bestPrice = totalPrice;
+                bestWeight = totalWeight;
+                bestMask = mask;
+            }
+        }
+        batch.searchNodes((1L << low) + (1L << (m - low)));
+        int found = 0;
+        for (int bit = 0; bit < m; bit++) {
+            if ((bestMask & 1L << bit) != 0) {
+                positions[found++] = usablePositions[bit];
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Subsets of the upper half by ascending weight with strictly increasing price.
+     */
+    private static final class Front {
+        private final long[] weights;
+        private final long[] prices;
+        private final int[] masks;
+        private final int size;
+
+        private Front(long[] weights, long[] prices, int[] masks, int size) {
+            this.weights = weights;
+            this.prices = prices;
+            this.masks = masks;
+            this.size = size;
+        }
+
+        static Front of(ScratchArena arena, int[] itemWeights, int[] itemPrices, int offset, int length,
+                        int capacity) {
+            int total = 1 << length;
+            long[] subsetPrices = arena.longs(SUBSET_PRICES, total);
+            int[] subsetMasks = arena.ints(SUBSET_MASKS, total);
+            long[] keys = arena.longs(KEYS, total);
+            int count = 0;
+            int gray = 0;
+            long weight = 0;
+            long price = 0;
+            for (int step = 0; step < total; step++) {
+                if (step > 0) {
+                    int bit = Integer.numberOfTrailingZeros(step);
+                    gray ^= 1 << bit;
+                    if ((gray & 1 << bit) != 0) {
+                        weight += itemWeights[offset + bit];
+                        price += itemPrices[offset + bit];
+                    } else {
+                        weight -= itemWeights[offset + bit];
+                        price -= itemPrices[offset + bit];
+                    }
+                }
+                if (weight <= capacity) {
+                    subsetPrices[count] = price;
+                    subsetMasks[count] = gray;
+                    keys[count] = weight << 32 | count;
+                    count++;
+                }
+            }
+            Arrays.sort(keys, 0, count);
+
+            long[] weights = arena.longs(FRONT_WEIGHTS, count);
+            long[] prices = arena.longs(FRONT_PRICES, count);
+            int[] masks = arena.ints(FRONT_MASKS, count);
+            int size = 0;
+            for (int i = 0; i < count; ) {
+                long runWeight = keys[i] >>> 32;
+                int best = (int) keys[i];
+                for (i++; i < count && keys[i] >>> 32 == runWeight; i++) {
+                    int candidate = (int) keys[i];
+                    int lowestDiff = Integer.lowestOneBit(subsetMasks[candidate] ^ subsetMasks[best]);
+                    long byPrice = subsetPrices[candidate] - subsetPrices[best];
+                    if (byPrice > 0 || byPrice == 0 && (subsetMasks[candidate] & lowestDiff) != 0) {
+                        best = candidate;
+                    }
+                }
+                if (size == 0 || subsetPrices[best] > prices[size - 1]) {
+                    weights[size] = runWeight;
+                    prices[size] = subsetPrices[best];
+                    masks[size++] = subsetMasks[best];
+                }
+            }
+            return new Front(weights, prices, masks, size);
+        }
+
+        /**
+         * Position of the priciest entry not heavier than room, the lightest one of that price. The empty
+         * subset always fits.
+         */
+        int lastFitting(long room) {
+            int low = 0;
+            int high = size - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (weights[mid] <= room) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return low;
+        }
+    }
+}
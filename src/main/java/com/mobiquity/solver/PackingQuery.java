@@ -0,0 +1,81 @@
+package com.mobiquity.solver;
+
+import com.mobiquity.api.Item;
+import com.mobiquity.api.ItemBatch;
+import com.mobiquity.utils.FixedPoint;
+import lombok.NonNull;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Packs one set of items into several package sizes at once.
+ * <p>
+ * Items are read into a single batch at a scale fine enough for every capacity. While the fixed-point
+ * table for the largest capacity stays within {@link SolverSelector#MAX_TABLE_CELLS}, it is filled once and
+ * every capacity is reconstructed from it, so extra sizes cost a walk over the items each. The price factor
+ * is taken from the largest capacity, which keeps the price-then-lighter-weight order for all of them.
+ * Larger tables fall back to the per-line solver choice over the shared batch, searched without a budget.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public final class PackingQuery {
+    private static final PackingSolver FALLBACK = new SolverSelector();
+
+    private PackingQuery() {
+    }
+
+    /**
+     * Find the most expensive set of items for every capacity.
+     *
+     * @param items      items to choose from
+     * @param capacities package capacities
+     * @return chosen items in input order, one list per capacity in the same order
+     * @throws IllegalStateException if the fallback solver still returned an approximate selection
+     */
+    public static List<List<Item>> solveAll(@NonNull List<Item> items, @NonNull BigDecimal... capacities) {
+        if (capacities.length == 0) {
+            return List.of();
+        }
+        BigDecimal max = capacities[0];
+        for (BigDecimal capacity : capacities) {
+            max = max.max(capacity);
+        }
+        ItemBatch batch = ItemBatch.of(items, max);
+        for (BigDecimal capacity : capacities) {
+            batch.capacity(capacity.unscaledValue().longValueExact(), capacity.scale());
+        }
+        batch.capacity(max.unscaledValue().longValueExact(), max.scale());
+
+        int largest = batch.capacity();
+        int[] positions = batch.selection();
+        long cells = (long) batch.size() * (largest + 1L);
+        FixedPointDpSolver.Table table = largest >= 0 && cells <= SolverSelector.MAX_TABLE_CELLS
+                ? FixedPointDpSolver.Table.fill(batch, largest, largest + 1L)
+                : null;
+        List<List<Item>> result = new ArrayList<>(capacities.length);
+        for (BigDecimal capacity : capacities) {
+            int c = Math.toIntExact(FixedPoint.rescale(capacity.unscaledValue().longValueExact(), capacity.scale(),
+                    batch.weightScale()));
+            int found;
+            if (c < 0) {
+                found = 0;
+            } else if (table != null) {
+                found = table.select(c, positions);
+            } else {
+                batch.capacity(c, batch.weightScale());
+                found = FALLBACK.solve(batch);
+                if (batch.approximate()) {
+                    throw new IllegalStateException("Search stopped before the best selection was found.");
+                }
+            }
+            List<Item> selection = new ArrayList<>(found);
+            for (int i = 0; i < found; i++) {
+                selection.add(items.get(positions[i]));
+            }
+            result.add(selection);
+        }
+        return result;
+    }
+}
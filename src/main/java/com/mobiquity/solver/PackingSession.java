@@ -0,0 +1,342 @@
+package com.mobiquity.solver;
+
+import com.mobiquity.api.Item;
+import com.mobiquity.api.ItemBatch;
+import lombok.NonNull;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps one package solved while its items and capacity are edited.
+ * <p>
+ * The session holds fixed-point table rows over item prefixes: row {@code i} is the best value of the first
+ * {@code i} items for every capacity up to the table one. Adding an item computes one row, removing one
+ * recomputes the rows after it, and a capacity change within the table is only a walk back over the rows.
+ * Values combine price and weight as {@code price * (table capacity + 1) - weight}, so the order is the
+ * same as for {@link PackingSolver}: highest price, then lowest weight. Items after a full tie are the same
+ * in every best selection; the items up to it are settled by folding just them from the last one into one
+ * value row and take bits, and taking every earlier item that still leads to the optimum.
+ * <p>
+ * The table is rebuilt when a capacity above it or a value with more decimals arrives; passing the largest
+ * expected capacity up front avoids that. Past {@link SolverSelector#MAX_TABLE_CELLS} cells no rows are kept
+ * and every edit is solved from scratch by {@link SolverSelector}. A session is not thread-safe.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public final class PackingSession {
+    private static final PackingSolver FALLBACK = new SolverSelector();
+
+    private final List<Item> items = new ArrayList<>();
+    private BigDecimal capacity;
+    private BigDecimal tableCapacity;
+    private int weightScale = ItemBatch.DEFAULT_SCALE;
+    private int priceScale = ItemBatch.DEFAULT_SCALE;
+    private int width;
+    private long factor;
+    private int[] weights = new int[16];
+    private long[] values = new long[16];
+    private long[][] rows = new long[17][];
+    private boolean tabled;
+    private long[] settleRow = new long[0];
+    private long[] settleTake = new long[0];
+    private int[] chosen = new int[16];
+    private List<Integer> indexes = List.of();
+
+    /**
+     * @param capacity package capacity
+     */
+    public PackingSession(@NonNull BigDecimal capacity) {
+        this(capacity, capacity);
+    }
+
+    /**
+     * @param capacity    package capacity
+     * @param maxCapacity largest capacity expected later, the table covers it without rebuilding
+     */
+    public PackingSession(@NonNull BigDecimal capacity, @NonNull BigDecimal maxCapacity) {
+        this.capacity = capacity;
+        tableCapacity = capacity.max(maxCapacity);
+        rebuild();
+    }
+
+    /**
+     * Append item.
+     *
+     * @param item item to add
+     * @return indexes of the chosen items in input order
+     */
+    public List<Integer> add(@NonNull Item item) {
+        items.add(item);
+        if (item.getWeight().scale() > weightScale || item.getPrice().scale() > priceScale) {
+            rebuild();
+        } else {
+            int n = items.size();
+            ensureLength(n);
+            if (tabled && !fits(n)) {
+                release();
+            }
+            if (tabled) {
+                fold(n - 1);
+            }
+            select();
+        }
+        return indexes;
+    }
+
+    /**
+     * Drop the first item with index.
+     *
+     * @param index item index
+     * @return indexes of the chosen items in input order
+     * @throws IllegalArgumentException if there is no such item
+     */
+    public List<Integer> remove(int index) {
+        int position = 0;
+        while (position < items.size() && items.get(position).getIndex() != index) {
+            position++;
+        }
+        if (position == items.size()) {
+            throw new IllegalArgumentException("No item with index " + index);
+        }
+        items.remove(position);
+        int n = items.size();
+        if (!tabled && fits(n)) {
+            rebuild();
+            return indexes;
+        }
+        if (tabled) {
+            for (int i = position; i < n; i++) {
+                fold(i);
+            }
+        }
+        select();
+        return indexes;
+    }
+
+    /**
+     * Change package capacity.
+     *
+     * @param capacity new capacity
+     * @return indexes of the chosen items in input order
+     */
+    public List<Integer> capacity(@NonNull BigDecimal capacity) {
+        this.capacity = capacity;
+        if (capacity.scale() > weightScale || capacity.compareTo(tableCapacity) > 0) {
+            tableCapacity = tableCapacity.max(capacity);
+            rebuild();
+        } else {
+            select();
+        }
+        return indexes;
+    }
+
+    /**
+     * @return indexes of the chosen items in input order
+     */
+    public List<Integer> indexes() {
+        return indexes;
+    }
+
+    /**
+     * @return chosen items in input order
+     */
+    public List<Item> selection() {
+        List<Item> selection = new ArrayList<>(indexes.size());
+        for (int k = 0; k < indexes.size(); k++) {
+            selection.add(items.get(chosen[k]));
+        }
+        return selection;
+    }
+
+    /**
+     * @return items of the session in input order
+     */
+    public List<Item> items() {
+        return Collections.unmodifiableList(items);
+    }
+
+    public BigDecimal capacity() {
+        return capacity;
+    }
+
+    /**
+     * Move to scales fine enough for every value and recompute all rows, if they fit.
+     */
+    private void rebuild() {
+        weightScale = Math.max(weightScale, tableCapacity.scale());
+        weightScale = Math.max(weightScale, capacity.scale());
+        for (Item item : items) {
+            weightScale = Math.max(weightScale, item.getWeight().scale());
+            priceScale = Math.max(priceScale, item.getPrice().scale());
+        }
+        width = Math.max(toUnits(tableCapacity), 0);
+        factor = width + 1L;
+        int n = items.size();
+        ensureLength(n);
+        tabled = fits(n);
+        if (tabled) {
+            rows[0] = new long[width + 1];
+            for (int i = 0; i < n; i++) {
+                fold(i);
+            }
+        } else {
+            release();
+        }
+        select();
+    }
+
+    /**
+     * @return true if rows for n items stay within the table cell limit
+     */
+    private boolean fits(int n) {
+        return (n + 1L) * (width + 1L) <= SolverSelector.MAX_TABLE_CELLS;
+    }
+
+    /**
+     * Drop all rows, edits are solved from scratch until the table fits again.
+     */
+    private void release() {
+        tabled = false;
+        Arrays.fill(rows, null);
+    }
+
+    /**
+     * Compute row {@code i + 1} from row {@code i} and item {@code i}.
+     */
+    private void fold(int i) {
+        if (rows[i + 1] == null || rows[i + 1].length != width + 1) {
+            rows[i + 1] = new long[width + 1];
+        }
+        Item item = items.get(i);
+        int w = Math.toIntExact(item.getWeight().setScale(weightScale).unscaledValue().longValueExact());
+        long v = item.getPrice().setScale(priceScale).unscaledValue().longValueExact() * factor - w;
+        weights[i] = w;
+        values[i] = v;
+        long[] previous = rows[i];
+        long[] next = rows[i + 1];
+        if (w < 0 || w > width || v <= 0) {
+            System.arraycopy(previous, 0, next, 0, width + 1);
+            return;
+        }
+        System.arraycopy(previous, 0, next, 0, w);
+        for (int c = w; c <= width; c++) {
+            next[c] = Math.max(previous[c], previous[c - w] + v);
+        }
+    }
+
+    /**
+     * Walk back over the rows from the current capacity.
+     */
+    private void select() {
+        int n = items.size();
+        int c = toUnits(capacity);
+        if (c < 0) {
+            indexes = List.of();
+            return;
+        }
+        if (!tabled) {
+            ItemBatch batch = ItemBatch.of(items, capacity);
+            int found = FALLBACK.solve(batch);
+            System.arraycopy(batch.selection(), 0, chosen, 0, found);
+            publish(found);
+            return;
+        }
+        int found = 0;
+        int tie = -1;
+        for (int i = n - 1; i >= 0 && tie < 0; i--) {
+            long target = rows[i + 1][c];
+            boolean skip = rows[i][c] == target;
+            int w = weights[i];
+            boolean take = w >= 0 && w <= c && values[i] > 0 && rows[i][c - w] + values[i] == target;
+            if (skip && take) {
+                tie = i;
+            } else if (take) {
+                chosen[found++] = i;
+                c -= w;
+            }
+        }
+        for (int k = 0; k < found / 2; k++) {
+            int swap = chosen[k];
+            chosen[k] = chosen[found - 1 - k];
+            chosen[found - 1 - k] = swap;
+        }
+        if (tie >= 0) {
+            // positions after the tie move out of the way of at most tie + 1 settled ones
+            System.arraycopy(chosen, 0, chosen, tie + 1, found);
+            int settled = settle(tie, c);
+            System.arraycopy(chosen, tie + 1, chosen, settled, found);
+            found += settled;
+        }
+        publish(found);
+    }
+
+    /**
+     * Choose the earliest best selection among the items up to {@code last} within capacity {@code c}.
+     *
+     * @return amount of chosen positions, written to the start of {@link #chosen} in ascending order
+     */
+    private int settle(int last, int c) {
+        int words = (c >>> 6) + 1;
+        if (settleRow.length < c + 1) {
+            settleRow = new long[c + 1];
+        }
+        if (settleTake.length < (last + 1) * words) {
+            settleTake = new long[(last + 1) * words];
+        }
+        Arrays.fill(settleRow, 0, c + 1, 0);
+        Arrays.fill(settleTake, 0, (last + 1) * words, 0);
+        for (int i = last; i >= 0; i--) {
+            int w = weights[i];
+            long v = values[i];
+            if (w < 0 || w > c || v <= 0) {
+                continue;
+            }
+            for (int room = c; room >= w; room--) {
+                long candidate = settleRow[room - w] + v;
+                if (candidate >= settleRow[room]) {
+                    settleRow[room] = candidate;
+                    settleTake[i * words + (room >>> 6)] |= 1L << room;
+                }
+            }
+        }
+        int found = 0;
+        for (int i = 0; i <= last; i++) {
+            if ((settleTake[i * words + (c >>> 6)] & 1L << c) != 0) {
+                chosen[found++] = i;
+                c -= weights[i];
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Expose item indexes of the first {@code found} chosen positions.
+     */
+    private void publish(int found) {
+        Integer[] result = new Integer[found];
+        for (int k = 0; k < found; k++) {
+            result[k] = items.get(chosen[k]).getIndex();
+        }
+        indexes = Collections.unmodifiableList(Arrays.asList(result));
+    }
+
+    private int toUnits(BigDecimal value) {
+        return Math.toIntExact(value.setScale(weightScale).unscaledValue().longValueExact());
+    }
+
+    private void ensureLength(int n) {
+        if (n > weights.length) {
+            int length = Math.max(n, weights.length * 2);
+            weights = Arrays.copyOf(weights, length);
+            values = Arrays.copyOf(values, length);
+            chosen = Arrays.copyOf(chosen, length);
+        }
+        if (n + 1 > rows.length) {
+            rows = Arrays.copyOf(rows, Math.max(n + 1, rows.length * 2));
+        }
+    }
+}
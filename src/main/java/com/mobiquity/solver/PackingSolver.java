@@ -0,0 +1,57 @@
+package com.mobiquity.solver;
+
+import com.mobiquity.api.Item;
+import com.mobiquity.api.ItemBatch;
+import lombok.NonNull;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Strategy for choosing the most expensive set of items which fits into a package.
+ * <p>
+ * Every implementation returns the same answer: the highest total price first, the lowest total weight
+ * on a price tie, and the selection including the earliest items on a full tie.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public interface PackingSolver {
+
+    /**
+     * Solve line kept in batch.
+     * Weights outside {@code [0, capacity]} are never chosen.
+     *
+     * @param batch items and capacity, chosen positions are written to {@link ItemBatch#selection()}
+     * @return amount of chosen positions, in ascending order
+     */
+    int solve(ItemBatch batch);
+
+    /**
+     * Solver which actually handles the batch, for decorators and per-line choices.
+     *
+     * @param batch line to solve
+     * @return solver doing the search
+     */
+    default PackingSolver choose(ItemBatch batch) {
+        return this;
+    }
+
+    /**
+     * Find the most expensive set of items which fits into capacity.
+     *
+     * @param items    items to choose from
+     * @param capacity package capacity
+     * @return chosen items in input order
+     */
+    default List<Item> solve(@NonNull List<Item> items, @NonNull BigDecimal capacity) {
+        ItemBatch batch = ItemBatch.of(items, capacity);
+        int found = solve(batch);
+        int[] positions = batch.selection();
+        List<Item> result = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            result.add(items.get(positions[i]));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,126 @@
+package com.mobiquity.solver;
+
+import com.mobiquity.api.ItemBatch;
+import com.mobiquity.solver.BranchAndBoundSolver.Search;
+import com.mobiquity.solver.BranchAndBoundSolver.Shared;
+import com.mobiquity.solver.BranchAndBoundSolver.Tree;
+import lombok.NonNull;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Branch-and-bound for single lines with hundreds of items, spread over a fork-join pool.
+ * <p>
+ * The top levels of the {@link BranchAndBoundSolver} search tree are split into tasks, about eight per pool
+ * thread, and every task searches its subtree depth-first. Tasks share the best price found so far in an
+ * {@link java.util.concurrent.atomic.AtomicLong}, which prunes a little less than the (price, weight) pair
+ * each task keeps for itself. The best pair does not depend on scheduling, and the earliest-items pass of
+ * the sequential solver then turns it into exactly the sequential answer. Only a
+ * spent budget makes results depend on timing. Lines with fewer than {@value #MIN_PARALLEL_ITEMS} items
+ * are solved on the calling thread.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public final class ParallelBranchAndBoundSolver implements PackingSolver {
+    public static final int MIN_PARALLEL_ITEMS = 32;
+    /**
+     * Subtrees with fewer levels left are not split any further.
+     */
+    static final int MIN_SPLIT_LEVELS = 16;
+
+    private final PackingSolver sequential = new BranchAndBoundSolver();
+    private final ForkJoinPool pool;
+    private final int splitDepth;
+
+    public ParallelBranchAndBoundSolver() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool pool to search on
+     */
+    public ParallelBranchAndBoundSolver(@NonNull ForkJoinPool pool) {
+        this.pool = pool;
+        splitDepth = 32 - Integer.numberOfLeadingZeros(pool.getParallelism()) + 3;
+    }
+
+    @Override
+    public int solve(ItemBatch batch) {
+        batch.solvedBy(getClass().getSimpleName());
+        if (batch.size() < MIN_PARALLEL_ITEMS) {
+            return sequential.solve(batch);
+        }
+        Tree tree = new Tree(batch, -1);
+        Search result = new Search(tree, batch, null, tree.fixed.clone());
+        tree.seed(result);
+        Shared shared = new Shared(result.bestPrice);
+        int depth = Math.min(splitDepth, Math.max(tree.m - MIN_SPLIT_LEVELS, 0));
+        merge(result, pool.invoke(new Subtree(tree, batch, shared, depth, 0, tree.capacity, tree.fixedPrice,
+                tree.fixed.clone())));
+        result.stopped = shared.stopped;
+        return BranchAndBoundSolver.finish(tree, batch, result);
+    }
+
+    private static void merge(Search into, Search from) {
+        if (from.bestPrice >= 0) {
+            into.offer(from.best, from.bestPrice, from.bestWeight);
+        }
+        into.nodes += from.nodes;
+    }
+
+    /**
+     * Subtree below a fixed decision on the first {@code k} items in ratio order.
+     */
+    private static final class Subtree extends RecursiveTask<Search> {
+        private static final long serialVersionUID = 1L;
+
+        private final Tree tree;
+        private final ItemBatch batch;
+        private final Shared shared;
+        private final int depth;
+        private final int k;
+        private final long room;
+        private final long price;
+        private final long[] current;
+
+        Subtree(Tree tree, ItemBatch batch, Shared shared, int depth, int k, long room, long price,
+                long[] current) {
+            this.tree = tree;
+            this.batch = batch;
+            this.shared = shared;
+            this.depth = depth;
+            this.k = k;
+            this.room = room;
+            this.price = price;
+            this.current = current;
+        }
+
+        @Override
+        protected Search compute() {
+            Search search = new Search(tree, batch, shared, current);
+            if (depth == 0 || k == tree.m) {
+                search.branch(k, room, price);
+                return search;
+            }
+            search.nodes++;
+            if (!search.promising(k, room, price)) {
+                return search;
+            }
+            int position = tree.order[k];
+            Subtree include = null;
+            if (tree.weights[k] <= room && !tree.skip(k, current)) {
+                long[] with = current.clone();
+                with[position >>> 6] |= 1L << position;
+                include = new Subtree(tree, batch, shared, depth - 1, k + 1, room - tree.weights[k],
+                        price + tree.prices[k], with);
+                include.fork();
+            }
+            merge(search, new Subtree(tree, batch, shared, depth - 1, k + 1, room, price, current).compute());
+            if (include != null) {
+                merge(search, include.join());
+            }
+            return search;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.mobiquity.solver;
+
+import com.mobiquity.api.ItemBatch;
+import com.mobiquity.utils.ScratchArena;
+import lombok.NonNull;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Solver decorator which shrinks every line before the search.
+ * <p>
+ * Items heavier than the line capacity or without price are dropped. Identical (weight, price) items are
+ * collapsed to as many copies as can fit together, keeping the lowest positions: further copies can never be
+ * chosen, and the earliest copies are the ones the tie-break would pick anyway. Copies are counted in an
+ * open-addressing table keyed by the pair, so a line costs linear time. Lines where nothing is left
+ * or everything left fits at once are answered without the delegate.
+ * <p>
+ * A pre-filter nested in another one on the same thread passes lines straight to its delegate: the outer
+ * one has filtered them already and its scratch memory is still in use.
+ * <p>
+ * Counters add up over the lifetime of the instance. Every {@link com.mobiquity.packer.PackerConfig} built
+ * with the default solver gets its own instance; the shared ones behind single-line helpers count for the
+ * whole JVM.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public final class PreFilteringSolver implements PackingSolver {
+    /**
+     * Reported as {@link ItemBatch#solvedBy()} of lines answered without the delegate.
+     */
+    public static final String TRIVIAL = "trivial";
+    private static final ScratchArena.Slot FILTERED = ScratchArena.slot("filter.batch");
+    private static final ScratchArena.Slot KEPT = ScratchArena.slot("filter.kept");
+    private static final ScratchArena.Slot PAIRS = ScratchArena.slot("filter.pairs");
+    private static final ScratchArena.Slot COPIES = ScratchArena.slot("filter.copies");
+    private static final ScratchArena.Slot DEPTH = ScratchArena.slot("filter.depth");
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    private final PackingSolver delegate;
+    private final LongAdder lines = new LongAdder();
+    private final LongAdder infeasible = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder noneFit = new LongAdder();
+    private final LongAdder allFit = new LongAdder();
+
+    /**
+     * @param delegate solver for lines which are not trivial after filtering
+     */
+    public PreFilteringSolver(@NonNull PackingSolver delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public int solve(ItemBatch batch) {
+        int[] depth = ScratchArena.get().object(DEPTH, () -> new int[1]);
+        if (depth[0] > 0) {
+            return delegate.solve(batch);
+        }
+        depth[0]++;
+        try {
+            return filter(batch);
+        } finally {
+            depth[0]--;
+        }
+    }
+
+    private int filter(ItemBatch batch) {
+        lines.increment();
+        int n = batch.size();
+        int capacity = batch.capacity();
+        int[] weights = batch.weights();
+        int[] prices = batch.prices();
+        int[] positions = batch.selection();
+        ScratchArena arena = ScratchArena.get();
+        int[] kept = arena.ints(KEPT, n);
+        int slots = Integer.highestOneBit(Math.max(n, 1)) << 2;
+        int shift = Long.numberOfLeadingZeros(slots) + 1;
+        long[] pairs = arena.longs(PAIRS, slots);
+        int[] copies = arena.ints(COPIES, slots);
+        Arrays.fill(pairs, 0, slots, 0);
+        int m = 0;
+        long total = 0;
+        for (int i = 0; i < n; i++) {
+            int w = weights[i];
+            if (w < 0 || w > capacity || prices[i] <= 0) {
+                infeasible.increment();
+                continue;
+            }
+            if (w > 0 && capacity / w < n
+                    && count(pairs, copies, shift, (long) w << 32 | prices[i]) >= capacity / w) {
+                duplicates.increment();
+                continue;
+            }
+            kept[m++] = i;
+            total += w;
+        }
+        if (m == 0) {
+            noneFit.increment();
+            batch.solvedBy(TRIVIAL);
+            return 0;
+        }
+        if (total <= capacity) {
+            allFit.increment();
+            batch.solvedBy(TRIVIAL);
+            System.arraycopy(kept, 0, positions, 0, m);
+            return m;
+        }
+        if (m == n) {
+            return delegate.solve(batch);
+        }
+        ItemBatch filtered = arena.object(FILTERED, ItemBatch::new);
+        filtered.reset();
+        filtered.limitsOf(batch);
+        filtered.capacity(capacity, batch.weightScale());
+        for (int k = 0; k < m; k++) {
+            int i = kept[k];
+            filtered.add(batch.index(i), weights[i], batch.weightScale(), prices[i], batch.priceScale());
+        }
+        int found = delegate.solve(filtered);
+        batch.approximate(filtered.approximate());
+        batch.searchNodes(filtered.searchNodes());
+        batch.solvedBy(filtered.solvedBy());
+        int[] chosen = filtered.selection();
+        for (int k = 0; k < found; k++) {
+            positions[k] = kept[chosen[k]];
+        }
+        return found;
+    }
+
+    @Override
+    public PackingSolver choose(ItemBatch batch) {
+        return delegate.choose(batch);
+    }
+
+    public long lines() {
+        return lines.sum();
+    }
+
+    /**
+     * @return items dropped as heavier than capacity or without price
+     */
+    public long infeasible() {
+        return infeasible.sum();
+    }
+
+    /**
+     * @return identical items dropped beyond the amount which can fit together
+     */
+    public long duplicates() {
+        return duplicates.sum();
+    }
+
+    /**
+     * @return lines answered as empty without search
+     */
+    public long noneFit() {
+        return noneFit.sum();
+    }
+
+    /**
+     * @return lines answered with every remaining item without search
+     */
+    public long allFit() {
+        return allFit.sum();
+    }
+
+    /**
+     * Count one more item of a (weight, price) pair, with linear probing over a power-of-two table.
+     *
+     * @param pairs  table keys, zero for a free slot
+     * @param copies counts per slot
+     * @param shift  {@code 64 - log2(table size)}
+     * @param pair   weight in the high half, price in the low one, never zero
+     * @return items of the pair counted before this one
+     */
+    private static int count(long[] pairs, int[] copies, int shift, long pair) {
+        int mask = (1 << (64 - shift)) - 1;
+        int slot = (int) (pair * GOLDEN >>> shift);
+        while (pairs[slot] != 0 && pairs[slot] != pair) {
+            slot = (slot + 1) & mask;
+        }
+        if (pairs[slot] == 0) {
+            pairs[slot] = pair;
+            copies[slot] = 0;
+        }
+        return copies[slot]++;
+    }
+}
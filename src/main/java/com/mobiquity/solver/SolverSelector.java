@@ -0,0 +1,66 @@
+package com.mobiquity.solver;
+
+import com.mobiquity.api.ItemBatch;
+import lombok.NonNull;
+
+/**
+ * Picks a solver for every line by its shape.
+ * <p>
+ * Exhaustive search costs {@code 2^n} steps and the fixed-point table {@code n * (capacity + 1)} cells,
+ * where capacity already carries the weight precision. The cheaper of both is used while it stays within
+ * limits. Lines with fine-grained weights and up to {@value MeetInTheMiddleSolver#MAX_ITEMS} items go to
+ * meet-in-the-middle search, anything larger to branch-and-bound, sequential unless another solver is given.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public final class SolverSelector implements PackingSolver {
+    static final long MAX_TABLE_CELLS = 1L << 24;
+
+    private final PackingSolver bitmask = new BitmaskSolver();
+    private final PackingSolver dynamic = new FixedPointDpSolver();
+    private final PackingSolver meetInTheMiddle = new MeetInTheMiddleSolver();
+    private final PackingSolver branchAndBound;
+
+    public SolverSelector() {
+        this(new BranchAndBoundSolver());
+    }
+
+    /**
+     * @param branchAndBound solver for lines too large for the table and meet-in-the-middle search, for
+     *                       example {@link ParallelBranchAndBoundSolver}
+     */
+    public SolverSelector(@NonNull PackingSolver branchAndBound) {
+        this.branchAndBound = branchAndBound;
+    }
+
+    @Override
+    public int solve(ItemBatch batch) {
+        return select(batch.size(), batch.capacity()).solve(batch);
+    }
+
+    @Override
+    public PackingSolver choose(ItemBatch batch) {
+        return select(batch.size(), batch.capacity());
+    }
+
+    /**
+     * Choose solver for instance shape.
+     *
+     * @param n        amount of items
+     * @param capacity package capacity in fixed-point units
+     * @return solver to use
+     */
+    public PackingSolver select(int n, int capacity) {
+        long cells = (long) n * (capacity + 1L);
+        if (n <= BitmaskSolver.MAX_ITEMS && 1L << n <= cells) {
+            return bitmask;
+        }
+        if (cells <= MAX_TABLE_CELLS) {
+            return dynamic;
+        }
+        if (n <= MeetInTheMiddleSolver.MAX_ITEMS) {
+            return meetInTheMiddle;
+        }
+        return branchAndBound;
+    }
+}
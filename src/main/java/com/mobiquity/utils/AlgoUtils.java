@@ -1,15 +1,20 @@
 package com.mobiquity.utils;
 
 import com.mobiquity.api.Item;
+import com.mobiquity.api.ItemBatch;
 import com.mobiquity.exception.APIException;
+import com.mobiquity.solver.PackingSolver;
+import com.mobiquity.solver.PreFilteringSolver;
+import com.mobiquity.solver.SolverSelector;
+import com.mobiquity.utils.FunctionalUtils.AmountPredicate;
+import com.mobiquity.utils.FunctionalUtils.DecimalPredicate;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.StringJoiner;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Predicate;
 
@@ -18,6 +23,12 @@ import java.util.function.Predicate;
  */
 @Slf4j
 public final class AlgoUtils {
+    /**
+     * Shared by every call without a solver, so its pre-filter counters add up over the whole JVM.
+     */
+    private static final PackingSolver DEFAULT_SOLVER = new PreFilteringSolver(new SolverSelector());
+    private static final ScratchArena.Slot BATCH = ScratchArena.slot("utils.batch");
+    private static final ScratchArena.Slot SINK = ScratchArena.slot("parse.sink");
 
     /**
      * Read result to string value.
@@ -31,15 +42,130 @@ public final class AlgoUtils {
                                                  @NonNull Predicate<BigDecimal> validateMaxWeight,
                                                  @NonNull Predicate<BigDecimal> validateMaxCost,
                                                  @NonNull Predicate<List<Item>> validateItemLimit) throws APIException {
-        AtomicReference<BigDecimal> maxWeight = new AtomicReference<>();
-        List<Item> items = readItemsFromLine(line, maxWeight, validateMaxWeight, validateMaxCost, validateItemLimit);
-        StringJoiner sj = new StringJoiner(",");
-        findMaxPriceLimitedByWeight(items, maxWeight.get())
-                .stream()
-                .map(Item::getIndex)
-                .map(String::valueOf)
-                .forEach(sj::add);
-        return sj.length() > 0 ? sj.toString() : "-";
+        return listIndexesWithMaxPrice(line, DEFAULT_SOLVER, validateMaxWeight, validateMaxCost, validateItemLimit);
+    }
+
+    /**
+     * Read result to string value using specific solver.
+     *
+     * @param line              line of text to parse
+     * @param solver            solver to find items with
+     * @param validateMaxWeight validator for maximum package and item size
+     * @param validateMaxCost   validator for maximum item price
+     * @param validateItemLimit restriction for item limit
+     * @return result as string value
+     */
+    public static String listIndexesWithMaxPrice(@NonNull String line,
+                                                 @NonNull PackingSolver solver,
+                                                 @NonNull Predicate<BigDecimal> validateMaxWeight,
+                                                 @NonNull Predicate<BigDecimal> validateMaxCost,
+                                                 @NonNull Predicate<List<Item>> validateItemLimit) throws APIException {
+        ItemBatch batch = ScratchArena.get().object(BATCH, ItemBatch::new).reset();
+        AmountPredicate itemLimit = validateItemLimit instanceof AmountPredicate
+                ? (AmountPredicate) validateItemLimit
+                : amount -> validateItemLimit.test(batch.items());
+        readBatch(line, batch, DecimalPredicate.of(validateMaxWeight), DecimalPredicate.of(validateMaxCost), itemLimit);
+        return listIndexes(batch, solver.solve(batch));
+    }
+
+    /**
+     * Parse line into reusable batch.
+     *
+     * @param line              line to read
+     * @param batch             batch to fill, expected to be empty
+     * @param validateMaxWeight validator for maximum package and item size
+     * @param validateMaxCost   validator for maximum item price
+     * @param validateItemLimit restriction for item limit
+     * @throws APIException if line is malformed or invalid
+     */
+    public static void readBatch(@NonNull CharSequence line,
+                                 @NonNull ItemBatch batch,
+                                 @NonNull DecimalPredicate validateMaxWeight,
+                                 @NonNull DecimalPredicate validateMaxCost,
+                                 @NonNull AmountPredicate validateItemLimit) throws APIException {
+        BatchSink sink = BatchSink.borrow();
+        try {
+            LineParser.parse(line, sink.reset(batch, validateMaxWeight, validateMaxCost, validateItemLimit));
+        } finally {
+            sink.reset(null, null, null, null);
+        }
+    }
+
+    /**
+     * Parse line of UTF-8 bytes from buffer into reusable batch.
+     *
+     * @param buffer            buffer holding the line
+     * @param from              first byte of the line
+     * @param to                position after the last byte of the line
+     * @param batch             batch to fill, expected to be empty
+     * @param validateMaxWeight validator for maximum package and item size
+     * @param validateMaxCost   validator for maximum item price
+     * @param validateItemLimit restriction for item limit
+     * @throws APIException if line is malformed or invalid
+     */
+    public static void readBatch(@NonNull ByteBuffer buffer,
+                                 int from,
+                                 int to,
+                                 @NonNull ItemBatch batch,
+                                 @NonNull DecimalPredicate validateMaxWeight,
+                                 @NonNull DecimalPredicate validateMaxCost,
+                                 @NonNull AmountPredicate validateItemLimit) throws APIException {
+        BatchSink sink = BatchSink.borrow();
+        try {
+            LineParser.parse(buffer, from, to, sink.reset(batch, validateMaxWeight, validateMaxCost, validateItemLimit));
+        } finally {
+            sink.reset(null, null, null, null);
+        }
+    }
+
+    /**
+     * Format chosen item indexes.
+     *
+     * @param batch batch holding solver selection
+     * @param found amount of chosen positions
+     * @return comma separated indexes or {@code -} if nothing is chosen
+     */
+    public static String listIndexes(@NonNull ItemBatch batch, int found) {
+        return found == 0 ? "-" : appendIndexes(new StringBuilder(found * 3), batch, found).toString();
+    }
+
+    /**
+     * Append chosen item indexes to builder.
+     *
+     * @param sb    target builder
+     * @param batch batch holding solver selection
+     * @param found amount of chosen positions
+     * @return the builder
+     */
+    public static StringBuilder appendIndexes(@NonNull StringBuilder sb, @NonNull ItemBatch batch, int found) {
+        if (found == 0) {
+            return sb.append('-');
+        }
+        int[] positions = batch.selection();
+        for (int i = 0; i < found; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(batch.index(positions[i]));
+        }
+        return sb;
+    }
+
+    /**
+     * Sink which validates parsed values and appends them to a batch. Items over weight or price limit are
+     * skipped, a package over weight limit or too many items fail the line.
+     *
+     * @param batch             batch to fill
+     * @param validateMaxWeight validator for maximum package and item size
+     * @param validateMaxCost   validator for maximum item price
+     * @param validateItemLimit restriction for item limit
+     * @return sink for {@link LineParser} and other sources of the same calls
+     */
+    public static LineParser.LineSink batchSink(@NonNull ItemBatch batch,
+                                                @NonNull DecimalPredicate validateMaxWeight,
+                                                @NonNull DecimalPredicate validateMaxCost,
+                                                @NonNull AmountPredicate validateItemLimit) {
+        return new BatchSink().reset(batch, validateMaxWeight, validateMaxCost, validateItemLimit);
     }
 
     /**
@@ -59,40 +185,48 @@ public final class AlgoUtils {
                                                @NonNull Predicate<BigDecimal> validateMaxCost,
                                                @NonNull Predicate<List<Item>> validateItemLimit) throws APIException {
         List<Item> items = new ArrayList<>();
-        AlgoUtils.readLine(line, (w, val) -> {
-            if (maxWeight.compareAndSet(null, w)) {
-                if (!validateMaxWeight.test(w)) {
-                    return new APIException("Max Package weight value exceeded.");
+        LineParser.parse(line, new LineParser.LineSink() {
+            @Override
+            public void capacity(long weight, int weightScale) throws APIException {
+                BigDecimal w = BigDecimal.valueOf(weight, weightScale);
+                if (maxWeight.compareAndSet(null, w) && !validateMaxWeight.test(w)) {
+                    throw new APIException("Max Package weight value exceeded.");
                 }
             }
-            if (!validateItemLimit.test(items)) {
-                return new APIException("Max Item amount exceeded.");
-            }
-            if (validateMaxWeight.test(val.getWeight()) && validateMaxCost.test(val.getPrice())) {
-                items.add(val);
+
+            @Override
+            public void item(int index, long weight, int weightScale, long price, int priceScale) throws APIException {
+                if (!validateItemLimit.test(items)) {
+                    throw new APIException("Max Item amount exceeded.");
+                }
+                Item val = toItem(index, weight, weightScale, price, priceScale);
+                if (validateMaxWeight.test(val.getWeight()) && validateMaxCost.test(val.getPrice())) {
+                    items.add(val);
+                }
             }
-            return null;
         });
         return items;
     }
 
     /**
-     * Filter initial list by specific weight.
+     * Filter initial list by specific weight. No search budget is set, so the search runs until the result is
+     * proven best.
      *
      * @param items  initial array of items
      * @param weight weight to limit
      * @return filtered result
+     * @throws IllegalStateException if the solver still returned an approximate selection
      */
     public static List<Item> findMaxPriceLimitedByWeight(@NonNull List<Item> items, @NonNull BigDecimal weight) {
-        List<Item> findings = new ArrayList<>();
-        int lastIdx = find(items, 0, 0, BigDecimal.valueOf(0), BigDecimal.valueOf(0), weight, findings);
-        List<Item> result;
-        int expectedSize = lastIdx + 1;
-        if (lastIdx > 0 && expectedSize < findings.size()) {
-            result = findings.subList(0, expectedSize);
-            log.debug("Shrinking array to expected size of {}", expectedSize);
-        } else {
-            result = findings;
+        ItemBatch batch = ItemBatch.of(items, weight);
+        int found = DEFAULT_SOLVER.solve(batch);
+        if (batch.approximate()) {
+            throw new IllegalStateException("Search stopped before the best selection was found.");
+        }
+        int[] positions = batch.selection();
+        List<Item> result = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            result.add(items.get(positions[i]));
         }
         return result;
     }
@@ -104,87 +238,93 @@ public final class AlgoUtils {
      * @param maxWeightConsumer consumer function for picking parsed items
      */
     public static void readLine(String line, FunctionalUtils.ApiConsumer maxWeightConsumer) throws APIException {
-        StringBuilder buff = new StringBuilder();
-        AtomicReference<BigDecimal> expectedWeight = new AtomicReference<>();
-        AtomicInteger scope = new AtomicInteger(1);
-        AtomicReference<APIException> ex = new AtomicReference<>();
-        line.codePoints()
-                .filter(i -> ex.get() == null)
-                .forEach(i -> {
-                    if (i == ':') {
-                        expectedWeight.set(new BigDecimal(buff.toString().trim()));
-                        buff.setLength(0);
-                        scope.decrementAndGet();
-                    } else if (i == '(') {
-                        scope.incrementAndGet();
-                    } else if (i == ')') {
-                        ex.set(maxWeightConsumer.consume(expectedWeight.get(), pourString(buff)));
-                        scope.decrementAndGet();
-                    } else if (scope.get() > 0) {
-                        buff.append((char) i);
-                    }
-                });
-        if (ex.get() != null) {
-            throw ex.get();
-        }
+        LineParser.parse(line, new LineParser.LineSink() {
+            private BigDecimal expectedWeight;
+
+            @Override
+            public void capacity(long weight, int weightScale) {
+                expectedWeight = BigDecimal.valueOf(weight, weightScale);
+            }
+
+            @Override
+            public void item(int index, long weight, int weightScale, long price, int priceScale) throws APIException {
+                APIException ex = maxWeightConsumer.consume(expectedWeight,
+                        toItem(index, weight, weightScale, price, priceScale));
+                if (ex != null) {
+                    throw ex;
+                }
+            }
+        });
     }
 
     /**
-     * Retrieve all data from buffer string.
+     * Build item from parsed fixed-point values.
      *
-     * @param sb
-     * @return
+     * @param index       item index
+     * @param weight      unscaled weight
+     * @param weightScale weight decimal digits
+     * @param price       unscaled price
+     * @param priceScale  price decimal digits
+     * @return item
      */
-    private static Item pourString(StringBuilder sb) {
-        int indexIdx = sb.indexOf(",", 0);
-        int weightIdx = sb.indexOf(",", indexIdx + 1);
-        int priceIdx = sb.indexOf("€", weightIdx);
-        Integer index = new BigDecimal(sb.substring(0, indexIdx)).intValue();
-        BigDecimal weight = new BigDecimal(sb.substring(indexIdx + 1, weightIdx));
-        BigDecimal price = new BigDecimal(sb.substring(priceIdx + 1));
-        sb.setLength(0);
-        return Item.builder().index(index).weight(weight).price(price).build();
+    private static Item toItem(int index, long weight, int weightScale, long price, int priceScale) {
+        return Item.builder()
+                .index(index)
+                .weight(BigDecimal.valueOf(weight, weightScale))
+                .price(BigDecimal.valueOf(price, priceScale))
+                .build();
     }
 
     /**
-     * @param items     List of Items to check
-     * @param next      Next array position
-     * @param depth     Result index
-     * @param weightSum initial weight amount
-     * @param priceSum  initial price amount
-     * @param maxWeight maximum allowed weight
-     * @param findings  result list to pick values.
-     * @return
+     * Reusable {@link #batchSink} state, borrowed per line by {@code readBatch}.
      */
-    private static int find(List<Item> items, int next, int depth, BigDecimal weightSum,
-                            BigDecimal priceSum, BigDecimal maxWeight, List<Item> findings) {
-        BigDecimal maxWsum = weightSum;
-        BigDecimal maxPsum = priceSum;
-        int lastIdx = -1;
-        for (int i = next; i < items.size(); i++) {
-            Item item = items.get(i);
-            for (int j = next + 1; j < items.size(); j++) {
-                BigDecimal wsum = weightSum.add(item.getWeight());
-                BigDecimal psum = priceSum.add(item.getPrice());
-                if (wsum.compareTo(maxWeight) < 1) {
-                    if (maxPsum.compareTo(psum) < 0 || (maxPsum.compareTo(psum) == 0 && wsum.compareTo(maxWsum) < 0)) {
-                        maxWsum = wsum;
-                        maxPsum = psum;
-                        if (findings.size() == depth) {
-                            findings.add(item);
-                            log.debug("Possible Item added to result {}. " +
-                                    "For max weight {}. Final price {}", item, maxWeight, maxPsum);
-                        } else {
-                            Item old = findings.set(depth, item);
-                            log.debug("Old {} replaced by {}, at index {}. " +
-                                    "For max weight {}. " +
-                                    "Final price for on this index {}", old, item, depth, maxWeight, maxPsum);
-                        }
-                        lastIdx = Math.max(find(items, i + 1, depth + 1, wsum, psum, maxWeight, findings), depth);
-                    }
+    private static final class BatchSink implements LineParser.LineSink {
+        private ItemBatch batch;
+        private DecimalPredicate validateMaxWeight;
+        private DecimalPredicate validateMaxCost;
+        private AmountPredicate validateItemLimit;
+
+        /**
+         * A sink in use, for a line parsed from inside another one, is not shared.
+         */
+        static BatchSink borrow() {
+            BatchSink sink = ScratchArena.get().object(SINK, BatchSink::new);
+            return sink.batch == null ? sink : new BatchSink();
+        }
+
+        BatchSink reset(ItemBatch batch, DecimalPredicate validateMaxWeight, DecimalPredicate validateMaxCost,
+                        AmountPredicate validateItemLimit) {
+            this.batch = batch;
+            this.validateMaxWeight = validateMaxWeight;
+            this.validateMaxCost = validateMaxCost;
+            this.validateItemLimit = validateItemLimit;
+            return this;
+        }
+
+        @Override
+        public void capacity(long weight, int weightScale) throws APIException {
+            if (!validateMaxWeight.test(weight, weightScale)) {
+                throw new APIException("Max Package weight value exceeded.");
+            }
+            try {
+                batch.capacity(weight, weightScale);
+            } catch (ArithmeticException e) {
+                throw new APIException("Package weight out of range.", e);
+            }
+        }
+
+        @Override
+        public void item(int index, long weight, int weightScale, long price, int priceScale) throws APIException {
+            if (!validateItemLimit.test(batch.size())) {
+                throw new APIException("Max Item amount exceeded.");
+            }
+            if (validateMaxWeight.test(weight, weightScale) && validateMaxCost.test(price, priceScale)) {
+                try {
+                    batch.add(index, weight, weightScale, price, priceScale);
+                } catch (ArithmeticException e) {
+                    throw new APIException("Item value out of range.", e);
                 }
             }
         }
-        return lastIdx;
     }
 }
@@ -0,0 +1,64 @@
+package com.mobiquity.utils;
+
+/**
+ * Helpers for decimals kept as unscaled long and amount of decimal digits.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public final class FixedPoint {
+    public static final int MAX_SCALE = 18;
+    private static final long[] POWERS_OF_TEN = new long[MAX_SCALE + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i <= MAX_SCALE; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private FixedPoint() {
+    }
+
+    /**
+     * @param exponent power, from 0 to {@link #MAX_SCALE}
+     * @return 10 raised to the power
+     */
+    public static long pow10(int exponent) {
+        return POWERS_OF_TEN[exponent];
+    }
+
+    /**
+     * Move value to a finer scale.
+     *
+     * @param unscaled value
+     * @param scale    current decimal digits
+     * @param target   wanted decimal digits, not less than {@code scale}
+     * @return unscaled value at target scale
+     * @throws ArithmeticException if result does not fit into long
+     */
+    public static long rescale(long unscaled, int scale, int target) {
+        if (target - scale > MAX_SCALE) {
+            if (unscaled == 0) {
+                return 0;
+            }
+            throw new ArithmeticException("long overflow");
+        }
+        return Math.multiplyExact(unscaled, pow10(target - scale));
+    }
+
+    /**
+     * Compare two non-negative decimals.
+     *
+     * @return negative, zero or positive value as for {@link Comparable#compareTo}
+     */
+    public static int compare(long a, int aScale, long b, int bScale) {
+        if (aScale < bScale) {
+            return -compare(b, bScale, a, aScale);
+        }
+        int diff = aScale - bScale;
+        if (diff > MAX_SCALE || b > Long.MAX_VALUE / pow10(diff)) {
+            return b == 0 ? Long.compare(a, 0) : -1;
+        }
+        return Long.compare(a, b * pow10(diff));
+    }
+}
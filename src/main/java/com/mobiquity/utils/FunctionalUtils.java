@@ -4,13 +4,15 @@ import com.mobiquity.api.Item;
 import com.mobiquity.exception.APIException;
 import lombok.NonNull;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -36,20 +38,82 @@ public final class FunctionalUtils {
      * @throws APIException
      */
     public static List<String> readLines(Stream<String> lines, ApiFunction<String, String> conversionFunction) throws APIException {
-        AtomicReference<APIException> ex = new AtomicReference<>();
-        List<String> result = lines.map(s -> {
-            String value = null;
+        List<String> result = new ArrayList<>();
+        for (Iterator<String> it = lines.iterator(); it.hasNext(); ) {
+            result.add(conversionFunction.apply(it.next()));
+        }
+        return result;
+    }
+
+    /**
+     * Read each line and pass converted line to consumer as soon as it is ready.
+     *
+     * @param reader             source of lines
+     * @param conversionFunction line conversion
+     * @param consumer           receiver of converted lines
+     * @throws APIException on first line which cannot be converted
+     * @throws IOException  if reader fails
+     */
+    public static void readLines(@NonNull BufferedReader reader,
+                                 @NonNull ApiFunction<String, String> conversionFunction,
+                                 @NonNull Consumer<String> consumer) throws APIException, IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            consumer.accept(conversionFunction.apply(line));
+        }
+    }
+
+    /**
+     * Read each line and pass converted line to consumer, replacing lines which cannot be converted.
+     *
+     * @param reader             source of lines
+     * @param conversionFunction line conversion
+     * @param consumer           receiver of converted lines
+     * @param onError            replacement for lines which cannot be converted
+     * @throws APIException if error handler rethrows
+     * @throws IOException  if reader fails
+     */
+    public static void readLines(@NonNull BufferedReader reader,
+                                 @NonNull ApiFunction<String, String> conversionFunction,
+                                 @NonNull Consumer<String> consumer,
+                                 @NonNull LineErrorHandler onError) throws APIException, IOException {
+        String line;
+        long lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            String result;
             try {
-                value = conversionFunction.apply(s);
+                result = conversionFunction.apply(line);
             } catch (APIException e) {
-                ex.set(e);
+                result = onError.onError(lineNumber, e);
             }
-            return value;
-        }).filter(s -> ex.get() == null).collect(Collectors.toList());
-        if (ex.get() != null) {
-            throw ex.get();
+            consumer.accept(result);
         }
-        return result;
+    }
+
+    /**
+     * Consumer which writes lines separated by new line, without trailing separator.
+     *
+     * @param writer target writer
+     * @return line consumer, throwing {@link UncheckedIOException} if writer fails
+     */
+    public static Consumer<String> joinLines(@NonNull Writer writer) {
+        return new Consumer<>() {
+            private boolean first = true;
+
+            @Override
+            public void accept(String line) {
+                try {
+                    if (!first) {
+                        writer.write('\n');
+                    }
+                    writer.write(line);
+                    first = false;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
     }
 
     /**
@@ -87,6 +151,54 @@ public final class FunctionalUtils {
         APIException consume(BigDecimal weight, Item item);
     }
 
+    /**
+     * Predicate over decimal kept as unscaled value and amount of decimal digits.
+     */
+    @FunctionalInterface
+    public interface DecimalPredicate extends Predicate<BigDecimal> {
+        boolean test(long unscaled, int scale);
+
+        @Override
+        default boolean test(BigDecimal value) {
+            BigDecimal normalized = value.scale() < 0 ? value.setScale(0) : value;
+            return test(normalized.unscaledValue().longValueExact(), normalized.scale());
+        }
+
+        static DecimalPredicate of(@NonNull Predicate<BigDecimal> predicate) {
+            if (predicate instanceof DecimalPredicate) {
+                return (DecimalPredicate) predicate;
+            }
+            return (unscaled, scale) -> predicate.test(BigDecimal.valueOf(unscaled, scale));
+        }
+    }
+
+    /**
+     * Predicate over amount of already accepted items.
+     */
+    @FunctionalInterface
+    public interface AmountPredicate extends Predicate<List<Item>> {
+        boolean test(int amount);
+
+        @Override
+        default boolean test(List<Item> items) {
+            return test(items.size());
+        }
+    }
+
+    /**
+     * Replacement of a line which cannot be converted.
+     */
+    @FunctionalInterface
+    public interface LineErrorHandler {
+        /**
+         * @param lineNumber number of the line, starting from 1
+         * @param e          conversion error
+         * @return line to pass on instead
+         * @throws APIException to stop reading
+         */
+        String onError(long lineNumber, APIException e) throws APIException;
+    }
+
     @FunctionalInterface
     public interface ApiFunction<I, O> {
         O apply(I in) throws APIException;
@@ -0,0 +1,217 @@
+package com.mobiquity.utils;
+
+import com.mobiquity.exception.APIException;
+import lombok.NonNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Hand-written parser for {@code capacity : (index,weight,€price) ...} lines.
+ * <p>
+ * Reads UTF-8 bytes, a byte buffer or characters in place and reports every decimal as an unscaled long
+ * with its scale, so {@code 53.38} arrives as {@code 5338} with scale {@code 2}. Nothing is copied or
+ * allocated per item, and the parser state is borrowed from the {@link ScratchArena} of the thread.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public final class LineParser {
+    static final int MAX_DIGITS = 18;
+    private static final char EURO = '€';
+    private static final int[] EURO_UTF8 = {0xE2, 0x82, 0xAC};
+    private static final ScratchArena.Slot CURSOR = ScratchArena.slot("parse.cursor");
+
+    private LineParser() {
+    }
+
+    /**
+     * Parse line of characters.
+     *
+     * @param line line to parse
+     * @param sink receiver for capacity and items
+     * @throws APIException if line is malformed or sink rejects a value
+     */
+    public static void parse(@NonNull CharSequence line, @NonNull LineSink sink) throws APIException {
+        cursor().parse(line, null, null, 0, line.length(), sink);
+    }
+
+    /**
+     * Parse line of UTF-8 bytes.
+     *
+     * @param bytes buffer holding the line
+     * @param from  first byte of the line
+     * @param to    position after the last byte of the line
+     * @param sink  receiver for capacity and items
+     * @throws APIException if line is malformed or sink rejects a value
+     */
+    public static void parse(@NonNull byte[] bytes, int from, int to, @NonNull LineSink sink) throws APIException {
+        cursor().parse(null, bytes, null, from, to, sink);
+    }
+
+    /**
+     * Parse line of UTF-8 bytes straight from buffer, for example a memory-mapped file.
+     * Buffer position and limit are left untouched.
+     *
+     * @param buffer buffer holding the line
+     * @param from   first byte of the line
+     * @param to     position after the last byte of the line
+     * @param sink   receiver for capacity and items
+     * @throws APIException if line is malformed or sink rejects a value
+     */
+    public static void parse(@NonNull ByteBuffer buffer, int from, int to, @NonNull LineSink sink) throws APIException {
+        cursor().parse(null, null, buffer, from, to, sink);
+    }
+
+    /**
+     * A sink may parse another line from its callbacks; such a nested parse gets a cursor of its own.
+     */
+    private static Cursor cursor() {
+        Cursor cursor = ScratchArena.get().object(CURSOR, Cursor::new);
+        return cursor.busy ? new Cursor() : cursor;
+    }
+
+    /**
+     * Receiver for parsed values. Decimals are passed as unscaled value and amount of decimal digits.
+     */
+    public interface LineSink {
+        void capacity(long weight, int weightScale) throws APIException;
+
+        void item(int index, long weight, int weightScale, long price, int priceScale) throws APIException;
+    }
+
+    private static final class Cursor {
+        private CharSequence chars;
+        private byte[] bytes;
+        private ByteBuffer buffer;
+        private int from;
+        private int to;
+        private int pos;
+        private long unscaled;
+        private int scale;
+        private boolean busy;
+
+        void parse(CharSequence chars, byte[] bytes, ByteBuffer buffer, int from, int to, LineSink sink)
+                throws APIException {
+            this.chars = chars;
+            this.bytes = bytes;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            pos = from;
+            busy = true;
+            try {
+                parse(sink);
+            } finally {
+                this.chars = null;
+                this.bytes = null;
+                this.buffer = null;
+                busy = false;
+            }
+        }
+
+        private void parse(LineSink sink) throws APIException {
+            skipSpaces();
+            readDecimal("package weight");
+            skipSpaces();
+            expect(':', "':'");
+            sink.capacity(unscaled, scale);
+            skipSpaces();
+            while (pos < to) {
+                expect('(', "'('");
+                skipSpaces();
+                readDecimal("item index");
+                if (scale != 0 || unscaled > Integer.MAX_VALUE) {
+                    throw malformed("integer item index");
+                }
+                int index = (int) unscaled;
+                skipSpaces();
+                expect(',', "','");
+                skipSpaces();
+                readDecimal("item weight");
+                long weight = unscaled;
+                int weightScale = scale;
+                skipSpaces();
+                expect(',', "','");
+                skipSpaces();
+                expectEuro();
+                skipSpaces();
+                readDecimal("item price");
+                skipSpaces();
+                expect(')', "')'");
+                sink.item(index, weight, weightScale, unscaled, scale);
+                skipSpaces();
+            }
+        }
+
+        private int at(int i) {
+            if (chars != null) {
+                return chars.charAt(i);
+            }
+            return bytes != null ? bytes[i] & 0xFF : buffer.get(i) & 0xFF;
+        }
+
+        private void skipSpaces() {
+            while (pos < to) {
+                int c = at(pos);
+                if (c != ' ' && c != '\t' && c != '\r' && c != '\n') {
+                    return;
+                }
+                pos++;
+            }
+        }
+
+        private void expect(char expected, String description) throws APIException {
+            if (pos >= to || at(pos) != expected) {
+                throw malformed(description);
+            }
+            pos++;
+        }
+
+        private void expectEuro() throws APIException {
+            if (chars != null) {
+                expect(EURO, "'€'");
+                return;
+            }
+            if (pos + EURO_UTF8.length > to) {
+                throw malformed("'€'");
+            }
+            for (int i = 0; i < EURO_UTF8.length; i++) {
+                if (at(pos + i) != EURO_UTF8[i]) {
+                    throw malformed("'€'");
+                }
+            }
+            pos += EURO_UTF8.length;
+        }
+
+        private void readDecimal(String description) throws APIException {
+            long value = 0;
+            int digits = 0;
+            int fraction = -1;
+            while (pos < to) {
+                int c = at(pos);
+                if (c >= '0' && c <= '9') {
+                    if (++digits > MAX_DIGITS) {
+                        throw malformed(description + " of at most " + MAX_DIGITS + " digits");
+                    }
+                    value = value * 10 + (c - '0');
+                    if (fraction >= 0) {
+                        fraction++;
+                    }
+                } else if (c == '.' && fraction < 0) {
+                    fraction = 0;
+                } else {
+                    break;
+                }
+                pos++;
+            }
+            if (digits == 0 || fraction == 0) {
+                throw malformed(description);
+            }
+            unscaled = value;
+            scale = Math.max(fraction, 0);
+        }
+
+        private APIException malformed(String expected) {
+            return new APIException("Malformed line: expected " + expected + " at position " + (pos - from) + ".");
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.mobiquity.utils;
+
+import com.mobiquity.exception.APIException;
+import lombok.NonNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Parallel counterpart of {@link FunctionalUtils#readLines(BufferedReader, FunctionalUtils.ApiFunction, Consumer)}.
+ * <p>
+ * A reader thread numbers lines and hands them to a pool of workers through a bounded queue. The calling
+ * thread collects converted lines in a reorder buffer and passes them to the consumer in input order.
+ * At most {@code inFlight} lines are read but not yet consumed, which bounds both the queue and the buffer
+ * and slows the reader down when the consumer or the workers fall behind.
+ * <p>
+ * Without an error handler the first failed line cancels the run: the reader stops, workers skip every
+ * later line, and the error is thrown once all earlier lines are consumed. With a handler failed lines are
+ * replaced in order and the run goes on. Unchecked exceptions and errors of a worker or the reader always
+ * cancel the run and are rethrown on the calling thread; checked ones thrown around the signature come
+ * wrapped in {@link UndeclaredThrowableException}.
+ * <p>
+ * The reader and workers run on {@link Workers#shared()} unless an executor is given, so a run starts no
+ * threads of its own.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public final class OrderedPipeline {
+    private static final Task END = new Task(-1, null);
+
+    private OrderedPipeline() {
+    }
+
+    /**
+     * Convert lines on several threads, keeping their order.
+     *
+     * @param reader             source of lines
+     * @param conversionFunction line conversion, called concurrently
+     * @param consumer           receiver of converted lines, called on the calling thread
+     * @param workers            amount of conversion threads
+     * @param inFlight           maximum amount of lines read but not yet consumed
+     * @throws APIException on first line, in input order, which cannot be converted
+     * @throws IOException  if reader fails
+     */
+    public static void readLines(@NonNull BufferedReader reader,
+                                 @NonNull FunctionalUtils.ApiFunction<String, String> conversionFunction,
+                                 @NonNull Consumer<String> consumer,
+                                 int workers,
+                                 int inFlight) throws APIException, IOException {
+        readLines(reader, conversionFunction, consumer, workers, inFlight, null);
+    }
+
+    /**
+     * Convert lines on several threads, keeping their order and replacing lines which cannot be converted.
+     *
+     * @param reader             source of lines
+     * @param conversionFunction line conversion, called concurrently
+     * @param consumer           receiver of converted lines, called on the calling thread
+     * @param workers            amount of conversion threads
+     * @param inFlight           maximum amount of lines read but not yet consumed
+     * @param onError            replacement for failed lines, called on the calling thread in input order;
+     *                           {@code null} to stop on the first failed line
+     * @throws APIException on first failed line without handler, or if handler rethrows
+     * @throws IOException  if reader fails
+     */
+    public static void readLines(@NonNull BufferedReader reader,
+                                 @NonNull FunctionalUtils.ApiFunction<String, String> conversionFunction,
+                                 @NonNull Consumer<String> consumer,
+                                 int workers,
+                                 int inFlight,
+                                 FunctionalUtils.LineErrorHandler onError) throws APIException, IOException {
+        readLines(reader, conversionFunction, consumer, workers, inFlight, onError, Workers.shared());
+    }
+
+    /**
+     * Convert lines on threads of a given executor, keeping their order and replacing lines which cannot be
+     * converted. Tasks of the run still running when it ends are interrupted.
+     *
+     * @param reader             source of lines
+     * @param conversionFunction line conversion, called concurrently
+     * @param consumer           receiver of converted lines, called on the calling thread
+     * @param workers            amount of conversion tasks
+     * @param inFlight           maximum amount of lines read but not yet consumed
+     * @param onError            replacement for failed lines, called on the calling thread in input order;
+     *                           {@code null} to stop on the first failed line
+     * @param executor           runs the reader and the workers, must be able to run {@code workers + 1} tasks
+     *                           at once
+     * @throws APIException on first failed line without handler, or if handler rethrows
+     * @throws IOException  if reader fails
+     */
+    public static void readLines(@NonNull BufferedReader reader,
+                                 @NonNull FunctionalUtils.ApiFunction<String, String> conversionFunction,
+                                 @NonNull Consumer<String> consumer,
+                                 int workers,
+                                 int inFlight,
+                                 FunctionalUtils.LineErrorHandler onError,
+                                 @NonNull Executor executor) throws APIException, IOException {
+        if (workers < 1 || inFlight < 1) {
+            throw new IllegalArgumentException("Workers and in-flight limit must be positive.");
+        }
+        Run run = new Run(inFlight, onError);
+        List<FutureTask<Void>> tasks = new ArrayList<>(workers + 1);
+        tasks.add(new FutureTask<>(() -> run.read(reader, workers), null));
+        for (int i = 0; i < workers; i++) {
+            tasks.add(new FutureTask<>(() -> run.convert(conversionFunction), null));
+        }
+        try {
+            for (FutureTask<Void> task : tasks) {
+                executor.execute(task);
+            }
+            run.write(consumer);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new APIException("Interrupted.", e);
+        } finally {
+            for (FutureTask<Void> task : tasks) {
+                task.cancel(true);
+            }
+        }
+    }
+
+    private static final class Task {
+        private final long sequence;
+        private final String line;
+
+        Task(long sequence, String line) {
+            this.sequence = sequence;
+            this.line = line;
+        }
+    }
+
+    private static final class Run {
+        private final BlockingQueue<Task> queue;
+        private final Semaphore permits;
+        private final Object[] slots;
+        private final FunctionalUtils.LineErrorHandler onError;
+        private volatile long failedAt = Long.MAX_VALUE;
+        private long total = -1;
+        private Throwable readFailure;
+
+        Run(int inFlight, FunctionalUtils.LineErrorHandler onError) {
+            queue = new ArrayBlockingQueue<>(inFlight);
+            permits = new Semaphore(inFlight);
+            slots = new Object[inFlight];
+            this.onError = onError;
+        }
+
+        void read(BufferedReader reader, int workers) {
+            long sequence = 0;
+            try {
+                String line;
+                while (sequence <= failedAt && (line = reader.readLine()) != null) {
+                    permits.acquire();
+                    queue.put(new Task(sequence++, line));
+                }
+                finish(sequence, null);
+                for (int i = 0; i < workers; i++) {
+                    queue.put(END);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | RuntimeException | Error e) {
+                finish(sequence, e);
+            }
+        }
+
+        void convert(FunctionalUtils.ApiFunction<String, String> conversionFunction) {
+            try {
+                Task task;
+                while ((task = queue.take()) != END) {
+                    if (task.sequence > failedAt) {
+                        continue;
+                    }
+                    Object result;
+                    try {
+                        result = conversionFunction.apply(task.line);
+                    } catch (APIException e) {
+                        result = e;
+                        if (onError == null) {
+                            cancelAfter(task.sequence);
+                        }
+                    } catch (Throwable e) {
+                        result = e;
+                        cancelAfter(task.sequence);
+                    }
+                    complete(task.sequence, result);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void write(Consumer<String> consumer) throws APIException, IOException, InterruptedException {
+            for (long next = 0; ; next++) {
+                Object result = await(next);
+                if (result == null) {
+                    return;
+                }
+                permits.release();
+                if (result instanceof APIException) {
+                    if (onError == null) {
+                        throw (APIException) result;
+                    }
+                    result = onError.onError(next + 1, (APIException) result);
+                }
+                if (result instanceof Throwable) {
+                    throw rethrow((Throwable) result);
+                }
+                consumer.accept((String) result);
+            }
+        }
+
+        /**
+         * Failure of a worker or the reader, thrown as is on the calling thread when unchecked.
+         */
+        private static RuntimeException rethrow(Throwable failure) {
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            if (failure instanceof RuntimeException) {
+                return (RuntimeException) failure;
+            }
+            return new UndeclaredThrowableException(failure);
+        }
+
+        private synchronized void cancelAfter(long sequence) {
+            failedAt = Math.min(failedAt, sequence);
+        }
+
+        private synchronized void finish(long total, Throwable failure) {
+            this.total = total;
+            this.readFailure = failure;
+            notifyAll();
+        }
+
+        private synchronized void complete(long sequence, Object result) {
+            slots[(int) (sequence % slots.length)] = result;
+            notifyAll();
+        }
+
+        private synchronized Object await(long sequence) throws IOException, InterruptedException {
+            int slot = (int) (sequence % slots.length);
+            while (slots[slot] == null) {
+                if (sequence == total) {
+                    if (readFailure instanceof IOException) {
+                        throw (IOException) readFailure;
+                    }
+                    if (readFailure != null) {
+                        throw rethrow(readFailure);
+                    }
+                    return null;
+                }
+                wait();
+            }
+            Object result = slots[slot];
+            slots[slot] = null;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.mobiquity.utils;
+
+import lombok.NonNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Per-thread scratch memory for the parse, filter and solve stages of a line.
+ * <p>
+ * Every stage declares its own {@link Slot} and borrows from it on the current thread; the memory is given
+ * back by borrowing the same slot again, usually for the next line. Slots grow to the largest line seen,
+ * so a steady run allocates nothing per line. Long arrays above {@value #OFF_HEAP_BYTES} bytes can be taken
+ * as direct buffers, which keeps big tables out of the Java heap. Memory kept by one thread is capped by
+ * the {@code mobiquity.arena.maxBytes} system property, 64 MiB by default; a request beyond the cap gets
+ * fresh memory which is dropped after use.
+ * <p>
+ * Slots are not reentrant: memory borrowed from a slot is only valid until the same slot is borrowed again on
+ * the thread. A stage which may run nested in itself, such as a solver decorator wrapping another instance
+ * of its own class, has to detect that and leave the slot alone, as
+ * {@link com.mobiquity.solver.PreFilteringSolver} does.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public final class ScratchArena {
+    public static final long MAX_BYTES = Long.getLong("mobiquity.arena.maxBytes", 64L << 20);
+    public static final int OFF_HEAP_BYTES = 1 << 20;
+
+    private static final AtomicInteger SLOTS = new AtomicInteger();
+    private static final ThreadLocal<ScratchArena> ARENA = ThreadLocal.withInitial(() -> new ScratchArena(MAX_BYTES));
+
+    private final long maxBytes;
+    private Object[] memory = new Object[16];
+    private long[] sizes = new long[16];
+    private long retained;
+
+    ScratchArena(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return arena of the current thread
+     */
+    public static ScratchArena get() {
+        return ARENA.get();
+    }
+
+    /**
+     * Declare a slot, once per stage and kind of memory.
+     *
+     * @param name name for diagnostics
+     * @return new slot
+     */
+    public static Slot slot(@NonNull String name) {
+        return new Slot(name, SLOTS.getAndIncrement());
+    }
+
+    /**
+     * @param length amount of long values
+     * @return true if such an array is better kept off-heap
+     */
+    public static boolean offHeap(int length) {
+        return (long) length * Long.BYTES > OFF_HEAP_BYTES;
+    }
+
+    /**
+     * Borrow a long array.
+     *
+     * @param slot   slot to borrow from
+     * @param length minimum length
+     * @return array of at least length, with unspecified content
+     */
+    public long[] longs(@NonNull Slot slot, int length) {
+        Object kept = kept(slot);
+        if (kept instanceof long[] && ((long[]) kept).length >= length) {
+            return (long[]) kept;
+        }
+        int grown = grow(kept instanceof long[] ? ((long[]) kept).length : 0, length);
+        if (!fits(slot, (long) grown * Long.BYTES)) {
+            return new long[length];
+        }
+        long[] array = new long[grown];
+        keep(slot, array, (long) grown * Long.BYTES);
+        return array;
+    }
+
+    /**
+     * Borrow an int array.
+     *
+     * @param slot   slot to borrow from
+     * @param length minimum length
+     * @return array of at least length, with unspecified content
+     */
+    public int[] ints(@NonNull Slot slot, int length) {
+        Object kept = kept(slot);
+        if (kept instanceof int[] && ((int[]) kept).length >= length) {
+            return (int[]) kept;
+        }
+        int grown = grow(kept instanceof int[] ? ((int[]) kept).length : 0, length);
+        if (!fits(slot, (long) grown * Integer.BYTES)) {
+            return new int[length];
+        }
+        int[] array = new int[grown];
+        keep(slot, array, (long) grown * Integer.BYTES);
+        return array;
+    }
+
+    /**
+     * Borrow long values in native memory.
+     *
+     * @param slot   slot to borrow from
+     * @param length minimum length
+     * @return buffer with position {@code 0} and limit {@code length}, with unspecified content
+     */
+    public LongBuffer directLongs(@NonNull Slot slot, int length) {
+        Object kept = kept(slot);
+        if (kept instanceof LongBuffer && ((LongBuffer) kept).capacity() >= length) {
+            return ((LongBuffer) kept).clear().limit(length);
+        }
+        int capacity = grow(kept instanceof LongBuffer ? ((LongBuffer) kept).capacity() : 0, length);
+        if (!fits(slot, (long) capacity * Long.BYTES)) {
+            return allocateDirect(length);
+        }
+        LongBuffer buffer = allocateDirect(capacity);
+        keep(slot, buffer, (long) capacity * Long.BYTES);
+        return buffer.limit(length);
+    }
+
+    /**
+     * Borrow a reusable object, for example a batch or a parser state. Objects are not counted against
+     * the memory cap.
+     *
+     * @param slot   slot to borrow from
+     * @param create factory for the first use on this thread
+     * @param <T>    type of the object
+     * @return object kept in slot
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T object(@NonNull Slot slot, @NonNull Supplier<T> create) {
+        Object kept = kept(slot);
+        if (kept == null) {
+            kept = create.get();
+            memory[slot.id] = kept;
+        }
+        return (T) kept;
+    }
+
+    /**
+     * @return bytes of arrays and buffers kept by this arena
+     */
+    public long retainedBytes() {
+        return retained;
+    }
+
+    /**
+     * Drop everything kept by this arena, for example before a thread goes idle.
+     */
+    public void release() {
+        Arrays.fill(memory, null);
+        Arrays.fill(sizes, 0);
+        retained = 0;
+    }
+
+    private Object kept(Slot slot) {
+        if (slot.id >= memory.length) {
+            int length = Math.max(slot.id + 1, memory.length * 2);
+            memory = Arrays.copyOf(memory, length);
+            sizes = Arrays.copyOf(sizes, length);
+        }
+        return memory[slot.id];
+    }
+
+    private boolean fits(Slot slot, long bytes) {
+        return retained - sizes[slot.id] + bytes <= maxBytes;
+    }
+
+    private void keep(Slot slot, Object value, long bytes) {
+        retained += bytes - sizes[slot.id];
+        sizes[slot.id] = bytes;
+        memory[slot.id] = value;
+    }
+
+    private static int grow(int current, int length) {
+        return Math.min(Integer.MAX_VALUE - 8, Math.max(length, current + (current >> 1)));
+    }
+
+    private static LongBuffer allocateDirect(int length) {
+        return ByteBuffer.allocateDirect(length * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer();
+    }
+
+    /**
+     * Key of memory borrowed by one stage.
+     */
+    public static final class Slot {
+        private final String name;
+        private final int id;
+
+        private Slot(String name, int id) {
+            this.name = name;
+            this.id = id;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.mobiquity.utils;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Daemon threads shared by parallel runs.
+ * <p>
+ * Threads are started on demand, reused by later runs and dropped after a minute without work, so a warm
+ * process starts no threads per run. The pool is unbounded on purpose: tasks of one run may block on each
+ * other, like the reader and workers of {@link OrderedPipeline}, and must never wait behind another run.
+ *
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+public final class Workers {
+    private static final ExecutorService SHARED = Executors.newCachedThreadPool(threadFactory());
+
+    private Workers() {
+    }
+
+    /**
+     * @return executor shared by the whole JVM
+     */
+    public static Executor shared() {
+        return SHARED;
+    }
+
+    private static ThreadFactory threadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, "packer-worker-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,69 @@
+package com.mobiquity.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+class ItemBatchTest {
+
+    @Test
+    void keepValuesInHundredths() {
+        ItemBatch batch = new ItemBatch();
+        batch.capacity(81, 0);
+        batch.add(1, 5338, 2, 45, 0);
+        batch.add(2, 153, 1, 985, 1);
+        assertThat(batch.size()).isEqualTo(2);
+        assertThat(batch.capacity()).isEqualTo(8100);
+        assertThat(batch.weight(0)).isEqualTo(5338);
+        assertThat(batch.weight(1)).isEqualTo(1530);
+        assertThat(batch.price(0)).isEqualTo(4500);
+        assertThat(batch.price(1)).isEqualTo(9850);
+    }
+
+    @Test
+    void rescaleOnFinerValue() {
+        ItemBatch batch = new ItemBatch();
+        batch.capacity(81, 0);
+        batch.add(1, 5338, 2, 45, 0);
+        batch.add(2, 12345, 4, 1, 3);
+        assertThat(batch.weightScale()).isEqualTo(4);
+        assertThat(batch.priceScale()).isEqualTo(3);
+        assertThat(batch.capacity()).isEqualTo(810000);
+        assertThat(batch.weight(0)).isEqualTo(533800);
+        assertThat(batch.price(0)).isEqualTo(45000);
+        assertThat(batch.item(1).getWeight()).isEqualByComparingTo("1.2345");
+    }
+
+    @Test
+    void reuseAfterReset() {
+        ItemBatch batch = new ItemBatch(1);
+        batch.capacity(8, 0);
+        for (int i = 1; i <= 20; i++) {
+            batch.add(i, i, 0, i, 0);
+        }
+        assertThat(batch.size()).isEqualTo(20);
+        assertThat(batch.selection().length).isGreaterThanOrEqualTo(20);
+        int[] weights = batch.weights();
+        batch.reset();
+        assertThat(batch.size()).isZero();
+        assertThat(batch.weightScale()).isEqualTo(ItemBatch.DEFAULT_SCALE);
+        batch.add(1, 1, 0, 1, 0);
+        assertThat(batch.weights()).isSameAs(weights);
+    }
+
+    @Test
+    void buildFromItems() {
+        List<Item> items = List.of(new Item(3, new BigDecimal("53.38"), new BigDecimal("45")));
+        ItemBatch batch = ItemBatch.of(items, new BigDecimal("81"));
+        assertThat(batch.items()).hasSize(1);
+        assertThat(batch.items().get(0).getIndex()).isEqualTo(3);
+        assertThat(batch.items().get(0).getWeight()).isEqualTo("53.38");
+        assertThat(batch.items().get(0).getPrice()).isEqualByComparingTo("45");
+    }
+}
@@ -0,0 +1,94 @@
+package com.mobiquity.codec;
+
+import com.mobiquity.exception.APIException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+class BinaryConverterTest {
+    private static final String TEXT = "81 : (1,53.38,€45) (2,88.62,€98) (3,78.48,€3)\n"
+            + "8.125 : (1,15.3,€34)\n"
+            + "56 :\n"
+            + "75 : (300,0.001,€0.5) (2,14.55,€74)";
+
+    @Test
+    void convertTextToBinaryAndBack() throws APIException {
+        byte[] binary = toBinary(TEXT);
+        StringWriter text = new StringWriter();
+        assertThat(BinaryConverter.binaryToText(new ByteArrayInputStream(binary), text)).isEqualTo(4);
+        assertThat(text.toString()).isEqualTo(TEXT);
+        assertThat(toBinary(text.toString())).isEqualTo(binary);
+    }
+
+    @Test
+    void readColumns() throws Exception {
+        PackageReader reader = new PackageReader(new ByteArrayInputStream(toBinary(TEXT)));
+        assertThat(reader.next()).isTrue();
+        assertThat(reader.next()).isTrue();
+        assertThat(reader.capacity()).isEqualTo(8125);
+        assertThat(reader.weightScale()).isEqualTo(3);
+        assertThat(reader.size()).isEqualTo(1);
+        assertThat(reader.weight(0)).isEqualTo(15300);
+        assertThat(reader.price(0)).isEqualTo(3400);
+        assertThat(reader.next()).isTrue();
+        assertThat(reader.size()).isZero();
+        assertThat(reader.next()).isTrue();
+        assertThat(reader.index(0)).isEqualTo(300);
+        assertThat(reader.next()).isFalse();
+    }
+
+    @Test
+    void writeAndReadResultBitmasks() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ResultWriter writer = new ResultWriter(out);
+        writer.write(10, new int[]{0, 9, 3}, 3, false);
+        writer.writeError();
+        writer.write(0, new int[0], 0, true);
+        writer.flush();
+
+        ResultReader reader = new ResultReader(new ByteArrayInputStream(out.toByteArray()));
+        assertThat(reader.next()).isTrue();
+        assertThat(reader.size()).isEqualTo(10);
+        boolean[] chosen = new boolean[10];
+        for (int i = 0; i < 10; i++) {
+            chosen[i] = reader.chosen(i);
+        }
+        assertThat(chosen).containsExactly(true, false, false, true, false, false, false, false, false, true);
+        assertThat(reader.next()).isTrue();
+        assertThat(reader.failed()).isTrue();
+        assertThat(reader.next()).isTrue();
+        assertThat(reader.approximate()).isTrue();
+        assertThat(reader.size()).isZero();
+        assertThat(reader.next()).isFalse();
+    }
+
+    @Test
+    void rejectMalformedInput() throws APIException {
+        byte[] binary = toBinary(TEXT);
+        APIException header = assertThrows(APIException.class,
+                () -> BinaryConverter.binaryToText(new ByteArrayInputStream("81 : ".getBytes()), new StringWriter()));
+        assertThat(header.getMessage()).isEqualTo("Not a binary pack stream.");
+        APIException truncated = assertThrows(APIException.class, () -> BinaryConverter.binaryToText(
+                new ByteArrayInputStream(Arrays.copyOf(binary, binary.length - 1)), new StringWriter()));
+        assertThat(truncated.getMessage()).isEqualTo("Truncated binary record.");
+        APIException text = assertThrows(APIException.class,
+                () -> toBinary("8 : (1,15.3,€34)\n8 : (1,15.3,34)"));
+        assertThat(text.getMessage()).startsWith("Line 2: ");
+    }
+
+    private static byte[] toBinary(String text) throws APIException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryConverter.textToBinary(new StringReader(text), out);
+        return out.toByteArray();
+    }
+}
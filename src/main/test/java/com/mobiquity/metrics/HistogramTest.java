@@ -0,0 +1,27 @@
+package com.mobiquity.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+class HistogramTest {
+
+    @Test
+    void reportPercentilesWithinBucket() {
+        Histogram histogram = new Histogram();
+        assertThat(histogram.percentile(0.5)).isZero();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        histogram.record(-5);
+        assertThat(histogram.count()).isEqualTo(101);
+        assertThat(histogram.max()).isEqualTo(100);
+        assertThat(histogram.sum()).isEqualTo(5050);
+        assertThat(histogram.percentile(0.5)).isBetween(50L, 100L);
+        assertThat(histogram.percentile(0.99)).isEqualTo(100);
+        assertThat(histogram.percentile(0)).isZero();
+    }
+}
@@ -0,0 +1,74 @@
+package com.mobiquity.metrics;
+
+import com.mobiquity.exception.APIException;
+import com.mobiquity.packer.Packer;
+import com.mobiquity.packer.PackerConfig;
+import com.mobiquity.solver.CachingSolver;
+import com.mobiquity.solver.PreFilteringSolver;
+import com.mobiquity.solver.SolverSelector;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+class PackerMetricsTest {
+    static String input = "81 : (1,53.38,€45) (2,88.62,€98) (3,78.48,€3) (4,72.30,€76) (5,30.18,€9) (6,46.34,€48)\n"
+            + "8 : (1,15.3,€34)\n"
+            + "81 : (1,53.38,€45) (2,88.62,€98) (3,78.48,€3) (4,72.30,€76) (5,30.18,€9) (6,46.34,€48)";
+
+    @Test
+    void recordEveryLine() throws APIException {
+        CachingSolver cache = new CachingSolver(new SolverSelector(), 16);
+        PackerMetrics metrics = new PackerMetrics().watch(cache);
+        List<String> results = new ArrayList<>();
+        Packer.pack(new StringReader(input), results::add,
+                PackerConfig.builder().solver(cache).metrics(metrics).build());
+        assertThat(results).containsExactly("4", "-", "4");
+        assertThat(metrics.getLines()).isEqualTo(3);
+        assertThat(metrics.parseNanos().count()).isEqualTo(3);
+        assertThat(metrics.solveNanos().count()).isEqualTo(3);
+        assertThat(metrics.lineNanos().count()).isEqualTo(3);
+        assertThat(metrics.getItemsPerLineMax()).isEqualTo(6);
+        assertThat(metrics.getCacheHits()).isEqualTo(1);
+        assertThat(metrics.getCacheMisses()).isEqualTo(2);
+        assertThat(metrics.getSolverChoices().values().stream().mapToLong(Long::longValue).sum()).isEqualTo(3);
+        assertThat(metrics.getSolverChoices()).containsEntry(CachingSolver.CACHED, 1L);
+        assertThat(metrics.getLinesPerSecond()).isPositive();
+    }
+
+    @Test
+    void exposeViaJmxAndMicrometer() throws APIException, JMException {
+        PackerMetrics metrics = new PackerMetrics();
+        Packer.pack(new StringReader(input), result -> {
+        }, PackerConfig.builder().metrics(metrics).build());
+        assertThat(metrics.getSolverChoices())
+                .containsEntry(PreFilteringSolver.TRIVIAL, 1L)
+                .containsEntry("BitmaskSolver", 2L);
+
+        ObjectName name = metrics.registerMBean("test");
+        try {
+            assertThat(ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Lines")).isEqualTo(3L);
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new PackerMeterBinder(metrics).bindTo(registry);
+        assertThat(registry.get("packer.lines").functionCounter().count()).isEqualTo(3);
+        assertThat(registry.get("packer.solve.p99").gauge().value()).isPositive();
+        assertThat(registry.get("packer.solver.choices").tag("solver", PreFilteringSolver.TRIVIAL)
+                .functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("packer.solver.choices").tag("solver", "ParallelBranchAndBoundSolver")
+                .functionCounter().count()).isZero();
+    }
+}
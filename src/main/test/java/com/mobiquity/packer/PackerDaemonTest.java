@@ -0,0 +1,49 @@
+package com.mobiquity.packer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+class PackerDaemonTest {
+
+    @Test
+    void answerJobsUntilQuit() throws IOException {
+        Path file = Files.createTempFile("packer", ".txt");
+        try {
+            Files.writeString(file, "8 : (1,15.3,€34)\n75 : (1,85.31,€29) (2,14.55,€74)", StandardCharsets.UTF_8);
+            String commands = "PING\n"
+                    + "FILE " + file + "\n"
+                    + "LINES 2\n"
+                    + "81 : (1,53.38,€45) (2,88.62,€98) (3,78.48,€3) (4,72.30,€76) (5,30.18,€9) (6,46.34,€48)\n"
+                    + "8 : (1,15.3,€34)\n"
+                    + "LINES 1\n"
+                    + "101 : (1,15.3,€34)\n"
+                    + "HELLO\n"
+                    + "QUIT\n"
+                    + "PING\n";
+            PackerDaemon daemon = new PackerDaemon(PackerConfig.defaults());
+            daemon.warmUp(100);
+            StringWriter out = new StringWriter();
+            daemon.serve(new BufferedReader(new StringReader(commands)), out);
+            assertThat(out.toString()).isEqualTo("PONG\n"
+                    + "OK 2\n-\n2\n"
+                    + "OK 2\n4\n-\n"
+                    + "ERROR Max Package weight value exceeded.\n"
+                    + "ERROR Unknown command.\n"
+                    + "BYE\n");
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
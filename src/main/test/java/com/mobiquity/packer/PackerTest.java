@@ -1,15 +1,32 @@
 package com.mobiquity.packer;
 
+import com.mobiquity.codec.BinaryConverter;
+import com.mobiquity.codec.ResultReader;
 import com.mobiquity.exception.APIException;
+import com.mobiquity.solver.BitmaskSolver;
+import com.mobiquity.solver.BranchAndBoundSolver;
+import com.mobiquity.solver.FixedPointDpSolver;
+import com.mobiquity.solver.FptasSolver;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
-import java.io.IOException;
+import java.io.*;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -50,4 +67,253 @@ class PackerTest {
         assertThat(output).isEqualTo(outputString);
     }
 
-}
\ No newline at end of file
+    @Test
+    void packWithForcedSolver() throws APIException {
+        assertThat(Packer.pack(inputResourcePath, new BitmaskSolver())).isEqualTo(outputString);
+        assertThat(Packer.pack(inputResourcePath, new FixedPointDpSolver())).isEqualTo(outputString);
+        assertThat(Packer.pack(inputResourcePath, new BranchAndBoundSolver())).isEqualTo(outputString);
+    }
+
+
+    @Test
+    void packStreams() throws APIException, IOException {
+        try (InputStream in = Thread.currentThread().getContextClassLoader().getResourceAsStream(inputResourcePath)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Packer.pack(Objects.requireNonNull(in), out);
+            assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(outputString);
+        }
+    }
+
+    @Test
+    void packPathIntoWriter() throws APIException, URISyntaxException {
+        URL url = Thread.currentThread().getContextClassLoader().getResource(inputResourcePath);
+        StringWriter writer = new StringWriter();
+        Packer.pack(Paths.get(Objects.requireNonNull(url).toURI()), writer);
+        assertThat(writer.toString()).isEqualTo(outputString);
+    }
+
+    @Test
+    void packReaderLineByLine() throws APIException {
+        List<String> results = new ArrayList<>();
+        APIException exception = assertThrows(APIException.class,
+                () -> Packer.pack(new StringReader("8 : (1,15.3,€34)\n81 : (1,53.38,€45)\nnot a line"), results::add));
+        assertThat(results).containsExactly("-", "1");
+        assertThat(exception.getMessage()).startsWith("Malformed line");
+    }
+
+    @Test
+    void packInParallel() throws APIException, IOException {
+        try (InputStream in = Thread.currentThread().getContextClassLoader().getResourceAsStream(inputResourcePath)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Packer.pack(Objects.requireNonNull(in), out, PackerConfig.builder().threads(4).queueSize(2).build());
+            assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(outputString);
+        }
+    }
+
+    @Test
+    void packMappedShards() throws APIException, IOException, URISyntaxException {
+        URL url = Thread.currentThread().getContextClassLoader().getResource(inputResourcePath);
+        String input = Files.readString(Paths.get(Objects.requireNonNull(url).toURI()), StandardCharsets.UTF_8);
+        Path file = Files.createTempFile("packer", ".txt");
+        try {
+            Files.writeString(file, input.replace("\n", "\r\n") + "\r\n", StandardCharsets.UTF_8);
+            for (int shardSize : new int[]{1, 50, 1 << 20}) {
+                StringWriter writer = new StringWriter();
+                Packer.pack(file, writer, PackerConfig.builder().threads(3).shardSize(shardSize).build());
+                assertThat(writer.toString()).isEqualTo(outputString);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void writeMappedLinesBeforeInvalidOne() throws APIException, IOException, URISyntaxException {
+        URL url = Thread.currentThread().getContextClassLoader().getResource(inputResourcePath);
+        String input = Files.readString(Paths.get(Objects.requireNonNull(url).toURI()), StandardCharsets.UTF_8);
+        Path file = Files.createTempFile("packer", ".txt");
+        try {
+            Files.writeString(file, input.trim() + "\ninvalid\n" + input, StandardCharsets.UTF_8);
+            for (int shardSize : new int[]{1, 50, 1 << 20}) {
+                StringWriter writer = new StringWriter();
+                PackerConfig config = PackerConfig.builder().threads(3).shardSize(shardSize).build();
+                assertThrows(APIException.class, () -> Packer.pack(file, writer, config));
+                assertThat(writer.toString()).isEqualTo(outputString.trim());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void packBinary() throws APIException, IOException {
+        ByteArrayOutputStream packages = new ByteArrayOutputStream();
+        try (InputStream in = Thread.currentThread().getContextClassLoader().getResourceAsStream(inputResourcePath)) {
+            BinaryConverter.textToBinary(new InputStreamReader(Objects.requireNonNull(in), StandardCharsets.UTF_8),
+                    packages);
+        }
+        ByteArrayOutputStream results = new ByteArrayOutputStream();
+        Packer.packBinary(new ByteArrayInputStream(packages.toByteArray()), results);
+        StringWriter text = new StringWriter();
+        BinaryConverter.resultsToText(new ByteArrayInputStream(packages.toByteArray()),
+                new ByteArrayInputStream(results.toByteArray()), text, " ~", "!");
+        assertThat(text.toString()).isEqualTo(outputString);
+    }
+
+    @Test
+    void skipAndReportInvalidBinaryPackages() throws APIException {
+        String input = "8 : (1,150,€34) (2,5,€10)\n"
+                + "101 : (1,15.3,€34)\n"
+                + "56 : (1,90.72,€13) (2,33.80,€40)";
+        ByteArrayOutputStream packages = new ByteArrayOutputStream();
+        BinaryConverter.textToBinary(new StringReader(input), packages);
+        ByteArrayOutputStream results = new ByteArrayOutputStream();
+        List<LineError> errors = Packer.packBinary(new ByteArrayInputStream(packages.toByteArray()), results,
+                PackerConfig.builder().errorPolicy(ErrorPolicy.SKIP_AND_REPORT).build());
+        assertThat(errors).containsExactly(new LineError(2, "Max Package weight value exceeded."));
+        StringWriter text = new StringWriter();
+        BinaryConverter.resultsToText(new ByteArrayInputStream(packages.toByteArray()),
+                new ByteArrayInputStream(results.toByteArray()), text, " ~", "!");
+        assertThat(text.toString()).isEqualTo("2\n!\n2");
+        APIException e = assertThrows(APIException.class,
+                () -> Packer.packBinary(new ByteArrayInputStream(packages.toByteArray()), new ByteArrayOutputStream()));
+        assertThat(e.getMessage()).isEqualTo("Max Package weight value exceeded.");
+    }
+
+    @Test
+    void flushBinaryResultsBeforeTruncatedPackage() throws APIException, IOException {
+        ByteArrayOutputStream packages = new ByteArrayOutputStream();
+        BinaryConverter.textToBinary(new StringReader("8 : (1,15.3,€34) (2,5,€10)\n"
+                + "56 : (1,90.72,€13) (2,33.80,€40)\n"
+                + "75 : (1,85.31,€29) (2,14.55,€74)"), packages);
+        byte[] truncated = Arrays.copyOf(packages.toByteArray(), packages.size() - 3);
+        ByteArrayOutputStream results = new ByteArrayOutputStream();
+        assertThrows(APIException.class, () -> Packer.packBinary(new ByteArrayInputStream(truncated),
+                new BufferedOutputStream(results, 1 << 16)));
+        ResultReader reader = new ResultReader(new ByteArrayInputStream(results.toByteArray()));
+        int records = 0;
+        while (reader.next()) {
+            assertThat(reader.failed()).isFalse();
+            records++;
+        }
+        assertThat(records).isEqualTo(2);
+    }
+
+    @Test
+    void packFineGrainedPricesAndWeights() throws APIException {
+        StringBuilder line = new StringBuilder("99.9999999 :");
+        for (int i = 1; i <= 12; i++) {
+            line.append(" (").append(i).append(",9.000000").append(1 + i % 2).append(",€99.999999").append(i % 9)
+                    .append(")");
+        }
+        assertThat(Packer.packLine(line.toString())).isEqualTo("1,2,3,4,5,6,7,8,10,11,12");
+    }
+
+    @Test
+    void packWithConfiguredItemLimit() throws APIException {
+        StringBuilder line = new StringBuilder("100 :");
+        for (int i = 1; i <= 20; i++) {
+            line.append(" (").append(i).append(",").append(i).append(".50,€").append(i).append(")");
+        }
+        List<String> results = new ArrayList<>();
+        APIException e = assertThrows(APIException.class,
+                () -> Packer.pack(new StringReader(line.toString()), results::add, PackerConfig.defaults()));
+        assertThat(e.getMessage()).isEqualTo("Max Item amount exceeded.");
+        Packer.pack(new StringReader(line.toString()), results::add,
+                PackerConfig.builder().maxItems(25).solver(new BranchAndBoundSolver()).build());
+        assertThat(results).hasSize(1);
+        assertThat(results.get(0)).isNotEqualTo("-");
+    }
+
+    @Test
+    void markLinesSolvedWithinBudget() throws APIException {
+        StringBuilder line = new StringBuilder("100 :");
+        for (int i = 1; i <= 40; i++) {
+            line.append(" (").append(i).append(",").append(i % 17 + 3).append(".").append(i % 7).append("1,€")
+                    .append(i * 37 % 100 + 1).append(")");
+        }
+        PackerConfig unlimited = PackerConfig.builder().maxItems(50).solver(new BranchAndBoundSolver()).build();
+        List<String> exact = new ArrayList<>();
+        Packer.pack(new StringReader(line.toString()), exact::add, unlimited);
+        assertThat(exact.get(0)).doesNotEndWith(" ~");
+
+        List<String> limited = new ArrayList<>();
+        Packer.pack(new StringReader(line + "\n" + line), limited::add,
+                unlimited.toBuilder().lineNodeBudget(64).runTimeout(Duration.ofMinutes(1)).build());
+        assertThat(limited).hasSize(2).allMatch(result -> result.endsWith(" ~"));
+
+        List<String> scaled = new ArrayList<>();
+        Packer.pack(new StringReader(line + "\n8 : (1,15.3,€34) (2,5.5,€0.01)"), scaled::add,
+                unlimited.toBuilder().solver(new FptasSolver(0.5)).build());
+        assertThat(scaled).hasSize(2);
+        assertThat(scaled.get(0)).endsWith(" ~");
+        assertThat(scaled.get(1)).isEqualTo("2");
+    }
+
+    @Test
+    void packLinesInMemory() throws APIException, IOException, URISyntaxException, ExecutionException,
+            InterruptedException {
+        URL url = Thread.currentThread().getContextClassLoader().getResource(inputResourcePath);
+        List<String> lines = Files.readAllLines(Paths.get(Objects.requireNonNull(url).toURI()), StandardCharsets.UTF_8);
+        List<String> expected = List.of(outputString.split("\n"));
+        assertThat(Packer.packLine(lines.get(0))).isEqualTo(expected.get(0));
+        assertThat(Packer.packLines(lines)).isEqualTo(expected);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertThat(Packer.packAsync(lines, PackerConfig.defaults(), executor).get()).isEqualTo(expected);
+            ExecutionException e = assertThrows(ExecutionException.class,
+                    () -> Packer.packAsync(List.of("101 : (1,1,€1)"), PackerConfig.defaults(), executor).get());
+            assertThat(e.getCause()).isInstanceOf(APIException.class);
+            PackerConfig failing = PackerConfig.builder().solver(batch -> {
+                throw new AssertionError("solver failed");
+            }).build();
+            e = assertThrows(ExecutionException.class,
+                    () -> Packer.packAsync(lines, failing, executor).get(10, TimeUnit.SECONDS));
+            assertThat(e.getCause()).isInstanceOf(AssertionError.class);
+        } finally {
+            executor.shutdown();
+        }
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> Packer.packAsync(lines, PackerConfig.defaults(), executor).get());
+        assertThat(e.getCause()).isInstanceOf(RejectedExecutionException.class);
+        assertThat(Packer.packAsync(lines).get()).isEqualTo(expected);
+    }
+
+    @Test
+    void skipAndReportInvalidLines() throws APIException, IOException {
+        String input = "8 : (1,15.3,€34)\n"
+                + "101 : (1,15.3,€34)\n"
+                + "75 : (1,85.31,€29) (2,14.55,€74)\n"
+                + "broken\n"
+                + "56 : (1,90.72,€13) (2,33.80,€40)";
+        List<String> expected = List.of("-", "!", "2", "!", "2");
+        PackerConfig skip = PackerConfig.builder().errorPolicy(ErrorPolicy.SKIP_AND_REPORT).build();
+        for (PackerConfig config : new PackerConfig[]{skip, skip.toBuilder().threads(3).queueSize(2).build()}) {
+            List<String> results = new ArrayList<>();
+            List<LineError> errors = Packer.pack(new StringReader(input), results::add, config);
+            assertThat(results).isEqualTo(expected);
+            assertThat(errors).extracting(LineError::getLine).containsExactly(2L, 4L);
+            assertThat(errors.get(0).getMessage()).isEqualTo("Max Package weight value exceeded.");
+        }
+        assertThat(Packer.packLines(List.of(input.split("\n")), skip)).isEqualTo(expected);
+        List<String> inMemory = new ArrayList<>();
+        assertThat(Packer.packLines(List.of(input.split("\n")), inMemory::add, skip))
+                .extracting(LineError::getLine).containsExactly(2L, 4L);
+        assertThat(inMemory).isEqualTo(expected);
+
+        Path file = Files.createTempFile("packer", ".txt");
+        try {
+            Files.writeString(file, input, StandardCharsets.UTF_8);
+            StringWriter writer = new StringWriter();
+            List<LineError> errors = Packer.pack(file, writer, skip.toBuilder().threads(2).shardSize(20).build());
+            assertThat(writer.toString()).isEqualTo(String.join("\n", expected));
+            assertThat(errors).extracting(LineError::getLine).containsExactly(2L, 4L);
+            APIException e = assertThrows(APIException.class,
+                    () -> Packer.pack(file, new StringWriter(), PackerConfig.builder().shardSize(20).build()));
+            assertThat(e.getMessage()).isEqualTo("Max Package weight value exceeded.");
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
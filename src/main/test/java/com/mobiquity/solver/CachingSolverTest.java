@@ -0,0 +1,47 @@
+package com.mobiquity.solver;
+
+import com.mobiquity.api.ItemBatch;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+class CachingSolverTest {
+
+    @Test
+    void reuseSelectionForSameContent() {
+        CachingSolver solver = new CachingSolver(new FixedPointDpSolver(), 16);
+        ItemBatch batch = batch(75, 1, 7);
+        assertThat(solver.solve(batch)).isEqualTo(2);
+        assertThat(solver.misses()).isEqualTo(1);
+
+        ItemBatch sameContentOtherIndexes = batch(75, 10, 70);
+        assertThat(solver.solve(sameContentOtherIndexes)).isEqualTo(2);
+        assertThat(sameContentOtherIndexes.selection()).startsWith(0, 1);
+        assertThat(solver.hits()).isEqualTo(1);
+
+        assertThat(solver.solve(batch(20, 1, 7))).isEqualTo(1);
+        assertThat(solver.misses()).isEqualTo(2);
+        assertThat(solver.size()).isEqualTo(2);
+    }
+
+    @Test
+    void evictLeastRecentlyUsed() {
+        CachingSolver solver = new CachingSolver(new FixedPointDpSolver(), 16);
+        for (int capacity = 1; capacity <= 100; capacity++) {
+            solver.solve(batch(capacity, 1, 2));
+        }
+        assertThat(solver.size()).isLessThanOrEqualTo(16);
+        assertThat(solver.evictions()).isEqualTo(100 - solver.size());
+    }
+
+    static ItemBatch batch(int capacity, int firstIndex, int secondIndex) {
+        ItemBatch batch = new ItemBatch();
+        batch.capacity(capacity, 0);
+        batch.add(firstIndex, 1455, 2, 74, 0);
+        batch.add(secondIndex, 6002, 2, 74, 0);
+        return batch;
+    }
+}
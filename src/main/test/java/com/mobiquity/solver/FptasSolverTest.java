@@ -0,0 +1,87 @@
+package com.mobiquity.solver;
+
+import com.mobiquity.api.Item;
+import com.mobiquity.api.ItemBatch;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+class FptasSolverTest {
+
+    @Test
+    void stayWithinErrorBound() {
+        Random random = new Random(17);
+        PackingSolver exact = new FixedPointDpSolver();
+        for (double epsilon : new double[]{0.5, 0.1, 0.01}) {
+            PackingSolver solver = new FptasSolver(epsilon);
+            for (int round = 0; round < 20; round++) {
+                List<Item> items = PackingSolverTest.randomItems(random, 50 + random.nextInt(300));
+                BigDecimal capacity = BigDecimal.valueOf(random.nextInt(100001), 2);
+                List<Item> chosen = solver.solve(items, capacity);
+                assertThat(total(chosen, Item::getWeight)).isLessThanOrEqualTo(capacity);
+                BigDecimal optimum = total(exact.solve(items, capacity), Item::getPrice);
+                assertThat(total(chosen, Item::getPrice))
+                        .isGreaterThanOrEqualTo(optimum.multiply(BigDecimal.valueOf(1 - epsilon)));
+            }
+        }
+    }
+
+    @Test
+    void solveSmallLinesExactly() {
+        Random random = new Random(19);
+        PackingSolver solver = new FptasSolver(0.01);
+        for (int round = 0; round < 100; round++) {
+            List<Item> items = PackingSolverTest.randomItems(random, 1 + random.nextInt(8));
+            BigDecimal capacity = BigDecimal.valueOf(random.nextInt(10001), 2);
+            assertThat(solver.solve(items, capacity))
+                    .extracting(Item::getIndex)
+                    .isEqualTo(PackingSolverTest.exhaustive(items, capacity));
+        }
+    }
+
+    @Test
+    void rebuildTakeBitsPerBlock() {
+        Random random = new Random(23);
+        for (double epsilon : new double[]{0.5, 0.05}) {
+            PackingSolver whole = new FptasSolver(epsilon);
+            PackingSolver blocks = new FptasSolver(epsilon, 1);
+            for (int round = 0; round < 20; round++) {
+                List<Item> items = PackingSolverTest.randomItems(random, 1 + random.nextInt(400));
+                BigDecimal capacity = BigDecimal.valueOf(random.nextInt(100001), 2);
+                assertThat(blocks.solve(items, capacity)).isEqualTo(whole.solve(items, capacity));
+            }
+        }
+    }
+
+    @Test
+    void markScaledSelectionsApproximate() {
+        Random random = new Random(29);
+        PackingSolver solver = new FptasSolver(0.1);
+        ItemBatch scaled = ItemBatch.of(PackingSolverTest.randomItems(random, 200), new BigDecimal("500.00"));
+        solver.solve(scaled);
+        assertThat(scaled.approximate()).isTrue();
+        ItemBatch exact = ItemBatch.of(List.of(new Item(1, new BigDecimal("5.00"), new BigDecimal("0.05"))),
+                new BigDecimal("50.00"));
+        solver.solve(exact);
+        assertThat(exact.approximate()).isFalse();
+    }
+
+    @Test
+    void rejectEpsilonOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new FptasSolver(0));
+        assertThrows(IllegalArgumentException.class, () -> new FptasSolver(1));
+    }
+
+    static BigDecimal total(List<Item> items, Function<Item, BigDecimal> value) {
+        return items.stream().map(value).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
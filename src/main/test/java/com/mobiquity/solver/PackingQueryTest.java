@@ -0,0 +1,48 @@
+package com.mobiquity.solver;
+
+import com.mobiquity.api.Item;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+class PackingQueryTest {
+
+    @Test
+    void answerEveryCapacityLikeSeparateLines() {
+        Random random = new Random(5);
+        for (int round = 0; round < 50; round++) {
+            List<Item> items = PackingSolverTest.randomItems(random, 1 + random.nextInt(12));
+            BigDecimal[] capacities = new BigDecimal[1 + random.nextInt(5)];
+            for (int i = 0; i < capacities.length; i++) {
+                capacities[i] = BigDecimal.valueOf(random.nextInt(100001), 1 + random.nextInt(3));
+            }
+            List<List<Item>> results = PackingQuery.solveAll(items, capacities);
+            assertThat(results).hasSize(capacities.length);
+            for (int i = 0; i < capacities.length; i++) {
+                assertThat(results.get(i))
+                        .extracting(Item::getIndex)
+                        .isEqualTo(PackingSolverTest.exhaustive(items, capacities[i]));
+            }
+        }
+    }
+
+    @Test
+    void fallBackForFineGrainedCapacities() {
+        List<Item> items = List.of(
+                new Item(1, new BigDecimal("53.38"), new BigDecimal("45")),
+                new Item(2, new BigDecimal("88.62"), new BigDecimal("98")),
+                new Item(3, new BigDecimal("78.48"), new BigDecimal("3")));
+        List<List<Item>> results = PackingQuery.solveAll(items,
+                new BigDecimal("81.000001"), new BigDecimal("-1"), new BigDecimal("150"));
+        assertThat(results.get(0)).extracting(Item::getIndex).containsExactly(1);
+        assertThat(results.get(1)).isEmpty();
+        assertThat(results.get(2)).extracting(Item::getIndex).containsExactly(1, 2);
+    }
+}
@@ -0,0 +1,97 @@
+package com.mobiquity.solver;
+
+import com.mobiquity.api.Item;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+class PackingSessionTest {
+    private static final PackingSolver SOLVER = new SolverSelector();
+
+    @Test
+    void followEdits() {
+        PackingSession session = new PackingSession(new BigDecimal("81"), new BigDecimal("100"));
+        assertThat(session.indexes()).isEmpty();
+        session.add(new Item(1, new BigDecimal("53.38"), new BigDecimal("45")));
+        session.add(new Item(2, new BigDecimal("88.62"), new BigDecimal("98")));
+        session.add(new Item(3, new BigDecimal("78.48"), new BigDecimal("3")));
+        assertThat(session.add(new Item(4, new BigDecimal("72.30"), new BigDecimal("76")))).containsExactly(4);
+        assertThat(session.capacity(new BigDecimal("90"))).containsExactly(2);
+        assertThat(session.remove(2)).containsExactly(4);
+        assertThat(session.selection()).extracting(Item::getIndex).containsExactly(4);
+        assertThat(session.capacity(new BigDecimal("8"))).isEmpty();
+        assertThrows(IllegalArgumentException.class, () -> session.remove(2));
+    }
+
+    @Test
+    void preferEarlierItemsOnFullTie() {
+        PackingSession session = new PackingSession(new BigDecimal("10"));
+        session.add(new Item(1, new BigDecimal("4"), new BigDecimal("10")));
+        session.add(new Item(2, new BigDecimal("6"), new BigDecimal("5")));
+        session.add(new Item(3, new BigDecimal("10"), new BigDecimal("15")));
+        assertThat(session.add(new Item(4, new BigDecimal("6"), new BigDecimal("5")))).containsExactly(1, 2);
+        assertThat(session.remove(1)).containsExactly(3);
+    }
+
+    @Test
+    void solveFromScratchPastCellLimit() {
+        Random random = new Random(31);
+        BigDecimal capacity = new BigDecimal("1000");
+        PackingSession session = new PackingSession(capacity);
+        List<Item> items = new ArrayList<>();
+        for (int i = 1; i <= 180; i++) {
+            Item item = new Item(i, BigDecimal.valueOf(random.nextInt(5000) + 100, 2),
+                    BigDecimal.valueOf(random.nextInt(20) + 1));
+            items.add(item);
+            session.add(item);
+        }
+        assertThat(session.indexes()).isEqualTo(indexes(SOLVER.solve(items, capacity)));
+        for (int i = 0; i < 20; i++) {
+            session.remove(items.remove(random.nextInt(items.size())).getIndex());
+        }
+        assertThat(session.indexes()).isEqualTo(indexes(SOLVER.solve(items, capacity)));
+    }
+
+    @Test
+    void matchSolverAfterRandomEdits() {
+        Random random = new Random(23);
+        for (int round = 0; round < 20; round++) {
+            BigDecimal capacity = BigDecimal.valueOf(random.nextInt(10001), 2);
+            PackingSession session = new PackingSession(capacity, new BigDecimal("100"));
+            List<Item> items = new ArrayList<>();
+            int next = 1;
+            for (int edit = 0; edit < 60; edit++) {
+                int kind = random.nextInt(10);
+                List<Integer> result;
+                if (kind < 5 || items.isEmpty()) {
+                    Item item = new Item(next++,
+                            BigDecimal.valueOf(random.nextInt(50) * 100 + 100, 2 + random.nextInt(2)),
+                            BigDecimal.valueOf(random.nextInt(10) + 1));
+                    items.add(item);
+                    result = session.add(item);
+                } else if (kind < 8) {
+                    Item item = items.remove(random.nextInt(items.size()));
+                    result = session.remove(item.getIndex());
+                } else {
+                    capacity = BigDecimal.valueOf(random.nextInt(12001), 2 + random.nextInt(2));
+                    result = session.capacity(capacity);
+                }
+                assertThat(result).isEqualTo(indexes(SOLVER.solve(items, capacity)));
+            }
+        }
+    }
+
+    static List<Integer> indexes(List<Item> items) {
+        return items.stream().map(Item::getIndex).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,303 @@
+package com.mobiquity.solver;
+
+import com.mobiquity.api.Item;
+import com.mobiquity.api.ItemBatch;
+import com.mobiquity.packer.PackerConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+class PackingSolverTest {
+
+    static Stream<PackingSolver> solvers() {
+        return Stream.of(new BitmaskSolver(), new FixedPointDpSolver(), new BranchAndBoundSolver(),
+                new MeetInTheMiddleSolver(), new ParallelBranchAndBoundSolver(), new SolverSelector(),
+                new CachingSolver(new SolverSelector(), 64));
+    }
+
+    @ParameterizedTest
+    @MethodSource("solvers")
+    void solveSingleItem(PackingSolver solver) {
+        List<Item> items = List.of(new Item(1, new BigDecimal("15.3"), new BigDecimal("34")));
+        assertThat(solver.solve(items, new BigDecimal("8"))).isEmpty();
+        assertThat(solver.solve(items, new BigDecimal("15.30"))).containsExactly(items.get(0));
+    }
+
+    @ParameterizedTest
+    @MethodSource("solvers")
+    void preferLighterSelectionOnPriceTie(PackingSolver solver) {
+        List<Item> items = List.of(
+                new Item(1, new BigDecimal("40.00"), new BigDecimal("50")),
+                new Item(2, new BigDecimal("20.00"), new BigDecimal("25")),
+                new Item(3, new BigDecimal("19.99"), new BigDecimal("25")));
+        assertThat(solver.solve(items, new BigDecimal("50")))
+                .extracting(Item::getIndex)
+                .containsExactly(2, 3);
+    }
+
+    @ParameterizedTest
+    @MethodSource("solvers")
+    void preferEarlierItemsOnFullTie(PackingSolver solver) {
+        List<Item> items = List.of(
+                new Item(1, new BigDecimal("10"), new BigDecimal("10")),
+                new Item(2, new BigDecimal("10"), new BigDecimal("10")));
+        assertThat(solver.solve(items, new BigDecimal("15")))
+                .extracting(Item::getIndex)
+                .containsExactly(1);
+    }
+
+    @ParameterizedTest
+    @MethodSource("solvers")
+    void matchExhaustiveSearch(PackingSolver solver) {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            List<Item> items = randomItems(random, 1 + random.nextInt(12));
+            BigDecimal capacity = BigDecimal.valueOf(random.nextInt(10001), 2);
+            assertThat(solver.solve(items, capacity))
+                    .extracting(Item::getIndex)
+                    .isEqualTo(exhaustive(items, capacity));
+        }
+    }
+
+    static Stream<PackingSolver> fineScaleSolvers() {
+        return solvers().filter(solver -> !(solver instanceof FixedPointDpSolver));
+    }
+
+    @ParameterizedTest
+    @MethodSource("fineScaleSolvers")
+    void matchExhaustiveSearchOnFineScale(PackingSolver solver) {
+        List<Item> items = fineScaleItems();
+        BigDecimal capacity = new BigDecimal("99.9999999");
+        assertThat(solver.solve(items, capacity))
+                .extracting(Item::getIndex)
+                .hasSize(11)
+                .isEqualTo(exhaustive(items, capacity));
+    }
+
+    @Test
+    void fixedPointDpRejectsOverflowingValues() {
+        assertThatThrownBy(() -> new FixedPointDpSolver().solve(fineScaleItems(), new BigDecimal("99.9999999")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Prices and weights at seven decimals, where {@code price * (capacity + 1)} no longer sums within a long.
+     */
+    static List<Item> fineScaleItems() {
+        List<Item> items = new ArrayList<>();
+        for (int i = 1; i <= 12; i++) {
+            items.add(new Item(i, BigDecimal.valueOf(90_000_001L + i % 2, 7),
+                    BigDecimal.valueOf(999_999_990L + i % 9, 7)));
+        }
+        return items;
+    }
+
+    @Test
+    void branchAndBoundMatchesDpOnLargeLines() {
+        Random random = new Random(7);
+        PackingSolver expected = new FixedPointDpSolver();
+        PackingSolver solver = new BranchAndBoundSolver();
+        for (int round = 0; round < 30; round++) {
+            List<Item> items = randomItems(random, 50 + random.nextInt(151));
+            BigDecimal capacity = BigDecimal.valueOf(random.nextInt(100001), 2);
+            assertThat(solver.solve(items, capacity)).isEqualTo(expected.solve(items, capacity));
+        }
+    }
+
+    @Test
+    void meetInTheMiddleMatchesBranchAndBoundOnFineWeights() {
+        Random random = new Random(11);
+        PackingSolver expected = new BranchAndBoundSolver();
+        PackingSolver solver = new MeetInTheMiddleSolver();
+        for (int round = 0; round < 10; round++) {
+            List<Item> items = new ArrayList<>();
+            for (int i = 0; i < 30 + random.nextInt(11); i++) {
+                items.add(new Item(i + 1,
+                        BigDecimal.valueOf(random.nextInt(1_000_000) + 1, 4),
+                        BigDecimal.valueOf(random.nextInt(20) + 1)));
+            }
+            BigDecimal capacity = BigDecimal.valueOf(random.nextInt(1_000_001), 4);
+            assertThat(solver.solve(items, capacity)).isEqualTo(expected.solve(items, capacity));
+        }
+    }
+
+    @Test
+    void fixedPointDpMatchesMeetInTheMiddleOffHeap() {
+        Random random = new Random(17);
+        PackingSolver expected = new MeetInTheMiddleSolver();
+        PackingSolver solver = new FixedPointDpSolver();
+        for (int round = 0; round < 8; round++) {
+            List<Item> items = new ArrayList<>();
+            for (int i = 0; i < 10 + random.nextInt(7); i++) {
+                items.add(new Item(i + 1,
+                        BigDecimal.valueOf(random.nextInt(300_000) + 1, 4),
+                        BigDecimal.valueOf(random.nextInt(20) + 1)));
+            }
+            BigDecimal capacity = BigDecimal.valueOf(200_000 + random.nextInt(800_001), 4);
+            assertThat(solver.solve(items, capacity)).isEqualTo(expected.solve(items, capacity));
+        }
+    }
+
+    static Stream<PackingSolver> branchAndBoundSolvers() {
+        return Stream.of(new BranchAndBoundSolver(), new ParallelBranchAndBoundSolver());
+    }
+
+    @ParameterizedTest
+    @MethodSource("branchAndBoundSolvers")
+    @Timeout(10)
+    void branchAndBoundSettlesIdenticalItems(PackingSolver solver) {
+        List<Item> items = IntStream.rangeClosed(1, 60)
+                .mapToObj(i -> new Item(i, new BigDecimal("10.00"), new BigDecimal("7")))
+                .collect(Collectors.toList());
+        ItemBatch batch = ItemBatch.of(items, new BigDecimal("75.50"));
+        int found = solver.solve(batch);
+        assertThat(batch.approximate()).isFalse();
+        assertThat(IntStream.range(0, found).map(k -> batch.index(batch.selection()[k])).toArray())
+                .containsExactly(1, 2, 3, 4, 5, 6, 7);
+    }
+
+    @ParameterizedTest
+    @MethodSource("branchAndBoundSolvers")
+    @Timeout(20)
+    void branchAndBoundMatchesDpOnCorrelatedLines(PackingSolver solver) {
+        Random random = new Random(23);
+        PackingSolver expected = new FixedPointDpSolver();
+        for (int round = 0; round < 5; round++) {
+            List<Item> items = new ArrayList<>();
+            for (int i = 0; i < 42; i++) {
+                BigDecimal weight = BigDecimal.valueOf(random.nextInt(999_999) + 1, 4);
+                items.add(new Item(i + 1, weight, weight.setScale(0, RoundingMode.HALF_UP).max(BigDecimal.ONE)));
+            }
+            BigDecimal capacity = new BigDecimal("155.5000");
+            ItemBatch batch = ItemBatch.of(items, capacity);
+            solver.solve(batch);
+            assertThat(batch.approximate()).isFalse();
+            assertThat(solver.solve(items, capacity)).isEqualTo(expected.solve(items, capacity));
+        }
+    }
+
+    @Test
+    @Timeout(30)
+    void defaultSolverStopsOnTiedLines() {
+        Random random = new Random(29);
+        PackingSolver solver = new PreFilteringSolver(new SolverSelector());
+        PackingSolver expected = new FixedPointDpSolver();
+        for (int round = 0; round < 5; round++) {
+            List<Item> items = new ArrayList<>();
+            for (int i = 0; i < 60; i++) {
+                int weight = random.nextInt(6) + 1;
+                items.add(new Item(i + 1, BigDecimal.valueOf(weight * 10_000L + random.nextInt(3), 4),
+                        BigDecimal.valueOf(weight)));
+            }
+            BigDecimal capacity = BigDecimal.valueOf(random.nextInt(60) + 30);
+            ItemBatch batch = ItemBatch.of(items, capacity);
+            batch.nodeBudget(PackerConfig.DEFAULT_LINE_NODE_BUDGET);
+            int found = solver.solve(batch);
+            List<Item> chosen = IntStream.range(0, found)
+                    .mapToObj(k -> items.get(batch.selection()[k]))
+                    .collect(Collectors.toList());
+            List<Item> optimal = expected.solve(items, capacity);
+            if (!batch.approximate()) {
+                assertThat(chosen).isEqualTo(optimal);
+            }
+            assertThat(total(chosen, Item::getPrice)).isEqualByComparingTo(total(optimal, Item::getPrice));
+            assertThat(total(chosen, Item::getWeight)).isEqualByComparingTo(total(optimal, Item::getWeight));
+        }
+    }
+
+    static BigDecimal total(List<Item> items, Function<Item, BigDecimal> amount) {
+        return items.stream().map(amount).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Test
+    void branchAndBoundStopsOnBudget() {
+        Random random = new Random(13);
+        List<Item> items = randomItems(random, 60);
+        BigDecimal capacity = new BigDecimal("250.00");
+        ItemBatch batch = ItemBatch.of(items, capacity);
+        batch.nodeBudget(BranchAndBoundSolver.CHECK_INTERVAL);
+        int found = new BranchAndBoundSolver().solve(batch);
+        assertThat(batch.approximate()).isTrue();
+        long weight = 0;
+        for (int i = 0; i < found; i++) {
+            weight += batch.weight(batch.selection()[i]);
+        }
+        assertThat(weight).isLessThanOrEqualTo(batch.capacity());
+
+        ItemBatch unlimited = ItemBatch.of(items, capacity);
+        new BranchAndBoundSolver().solve(unlimited);
+        assertThat(unlimited.approximate()).isFalse();
+    }
+
+    @Test
+    void selectByInstanceShape() {
+        SolverSelector selector = new SolverSelector();
+        assertThat(selector.select(4, 10000)).isInstanceOf(BitmaskSolver.class);
+        assertThat(selector.select(15, 100)).isInstanceOf(FixedPointDpSolver.class);
+        assertThat(selector.select(25, 100_000_000)).isInstanceOf(MeetInTheMiddleSolver.class);
+        assertThat(selector.select(50, 100_000_000)).isInstanceOf(BranchAndBoundSolver.class);
+        assertThat(new SolverSelector(new ParallelBranchAndBoundSolver()).select(50, 100_000_000))
+                .isInstanceOf(ParallelBranchAndBoundSolver.class);
+    }
+
+    static List<Item> randomItems(Random random, int n) {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            items.add(new Item(i + 1,
+                    BigDecimal.valueOf(random.nextInt(10000) + 1, 2),
+                    BigDecimal.valueOf(random.nextInt(20) + 1)));
+        }
+        return items;
+    }
+
+    static List<Integer> exhaustive(List<Item> items, BigDecimal capacity) {
+        int bestMask = 0;
+        BigDecimal bestPrice = BigDecimal.ZERO;
+        BigDecimal bestWeight = BigDecimal.ZERO;
+        for (int mask = 1; mask < 1 << items.size(); mask++) {
+            BigDecimal weight = BigDecimal.ZERO;
+            BigDecimal price = BigDecimal.ZERO;
+            for (int i = 0; i < items.size(); i++) {
+                if ((mask & 1 << i) != 0) {
+                    weight = weight.add(items.get(i).getWeight());
+                    price = price.add(items.get(i).getPrice());
+                }
+            }
+            if (weight.compareTo(capacity) > 0) {
+                continue;
+            }
+            int byPrice = price.compareTo(bestPrice);
+            int byWeight = weight.compareTo(bestWeight);
+            int lowestDiff = Integer.lowestOneBit(mask ^ bestMask);
+            if (byPrice > 0 || byPrice == 0 && (byWeight < 0 || byWeight == 0 && (mask & lowestDiff) != 0)) {
+                bestMask = mask;
+                bestPrice = price;
+                bestWeight = weight;
+            }
+        }
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            if ((bestMask & 1 << i) != 0) {
+                indexes.add(items.get(i).getIndex());
+            }
+        }
+        return indexes;
+    }
+}
@@ -0,0 +1,77 @@
+package com.mobiquity.solver;
+
+import com.mobiquity.api.Item;
+import com.mobiquity.api.ItemBatch;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+class ParallelBranchAndBoundSolverTest {
+    static ForkJoinPool pool;
+
+    @BeforeAll
+    static void init() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterAll
+    static void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void matchSequentialSearchOnLargeLines() {
+        Random random = new Random(17);
+        PackingSolver expected = new BranchAndBoundSolver();
+        PackingSolver solver = new ParallelBranchAndBoundSolver(pool);
+        for (int round = 0; round < 30; round++) {
+            List<Item> items = PackingSolverTest.randomItems(random, 100 + random.nextInt(201));
+            BigDecimal capacity = BigDecimal.valueOf(random.nextInt(100001), 2);
+            assertThat(solver.solve(items, capacity)).isEqualTo(expected.solve(items, capacity));
+        }
+    }
+
+    @Test
+    void keepTieBreakUnderContention() {
+        Random random = new Random(19);
+        PackingSolver expected = new BranchAndBoundSolver();
+        PackingSolver solver = new ParallelBranchAndBoundSolver(pool);
+        for (int round = 0; round < 20; round++) {
+            List<Item> items = new ArrayList<>();
+            for (int i = 0; i < 60; i++) {
+                items.add(new Item(i + 1, BigDecimal.valueOf(random.nextInt(4) + 1), BigDecimal.valueOf(3)));
+            }
+            BigDecimal capacity = BigDecimal.valueOf(random.nextInt(40) + 1);
+            List<Item> sequential = expected.solve(items, capacity);
+            for (int run = 0; run < 5; run++) {
+                assertThat(solver.solve(items, capacity)).isEqualTo(sequential);
+            }
+        }
+    }
+
+    @Test
+    void stopOnSharedBudget() {
+        Random random = new Random(13);
+        List<Item> items = PackingSolverTest.randomItems(random, 200);
+        ItemBatch batch = ItemBatch.of(items, new BigDecimal("2500.00"));
+        batch.nodeBudget(BranchAndBoundSolver.CHECK_INTERVAL);
+        int found = new ParallelBranchAndBoundSolver(pool).solve(batch);
+        long weight = 0;
+        for (int i = 0; i < found; i++) {
+            weight += batch.weight(batch.selection()[i]);
+        }
+        assertThat(weight).isLessThanOrEqualTo(batch.capacity());
+        assertThat(batch.approximate()).isTrue();
+    }
+}
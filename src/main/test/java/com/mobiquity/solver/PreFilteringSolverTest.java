@@ -0,0 +1,92 @@
+package com.mobiquity.solver;
+
+import com.mobiquity.api.Item;
+import com.mobiquity.api.ItemBatch;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+class PreFilteringSolverTest {
+
+    @Test
+    void dropInfeasibleAndDuplicateItems() {
+        PreFilteringSolver solver = new PreFilteringSolver(new FixedPointDpSolver());
+        ItemBatch batch = new ItemBatch();
+        batch.capacity(50, 0);
+        batch.add(1, 6000, 2, 90, 0);
+        batch.add(2, 2000, 2, 30, 0);
+        batch.add(3, 2000, 2, 30, 0);
+        batch.add(4, 2000, 2, 30, 0);
+        batch.add(5, 3000, 2, 45, 0);
+        assertThat(solver.solve(batch)).isEqualTo(2);
+        assertThat(batch.selection()).startsWith(1, 4);
+        assertThat(solver.infeasible()).isEqualTo(1);
+        assertThat(solver.duplicates()).isEqualTo(1);
+        assertThat(solver.lines()).isEqualTo(1);
+    }
+
+    @Test
+    @Timeout(5)
+    void dropDuplicatesOfLongLines() {
+        PreFilteringSolver solver = new PreFilteringSolver(new BranchAndBoundSolver());
+        ItemBatch batch = new ItemBatch();
+        batch.capacity(100, 0);
+        for (int i = 0; i < 200_000; i++) {
+            batch.add(i + 1, 3000 + i % 4 * 1000, 2, 10 + i % 3, 0);
+        }
+        int found = solver.solve(batch);
+        assertThat(solver.duplicates()).isEqualTo(200_000 - 24);
+        assertThat(found).isEqualTo(3);
+    }
+
+    @Test
+    void answerTrivialLines() {
+        PreFilteringSolver solver = new PreFilteringSolver(batch -> {
+            throw new AssertionError("Trivial line reached solver.");
+        });
+        List<Item> items = List.of(
+                new Item(1, new BigDecimal("10"), new BigDecimal("5")),
+                new Item(2, new BigDecimal("20"), new BigDecimal("7")));
+        assertThat(solver.solve(items, new BigDecimal("5"))).isEmpty();
+        assertThat(solver.solve(items, new BigDecimal("30"))).containsExactlyElementsOf(items);
+        assertThat(solver.noneFit()).isEqualTo(1);
+        assertThat(solver.allFit()).isEqualTo(1);
+    }
+
+    @Test
+    void matchExhaustiveSearchWithDuplicates() {
+        matchExhaustiveSearch(new PreFilteringSolver(new SolverSelector()));
+    }
+
+    @Test
+    void leaveScratchMemoryOfOuterFilterAlone() {
+        PreFilteringSolver inner = new PreFilteringSolver(new SolverSelector());
+        matchExhaustiveSearch(new PreFilteringSolver(new CachingSolver(inner, 64)));
+        assertThat(inner.lines()).isZero();
+    }
+
+    static void matchExhaustiveSearch(PackingSolver solver) {
+        Random random = new Random(3);
+        for (int round = 0; round < 200; round++) {
+            List<Item> items = new ArrayList<>();
+            for (int i = 0; i < 1 + random.nextInt(12); i++) {
+                items.add(new Item(i + 1,
+                        BigDecimal.valueOf(random.nextInt(6) * 1000 + 500, 2),
+                        BigDecimal.valueOf(random.nextInt(3) + 1)));
+            }
+            BigDecimal capacity = BigDecimal.valueOf(random.nextInt(6001), 2);
+            assertThat(solver.solve(items, capacity))
+                    .extracting(Item::getIndex)
+                    .isEqualTo(PackingSolverTest.exhaustive(items, capacity));
+        }
+    }
+}
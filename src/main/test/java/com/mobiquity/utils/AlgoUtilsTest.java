@@ -1,7 +1,10 @@
 package com.mobiquity.utils;
 
 import com.mobiquity.api.Item;
+import com.mobiquity.api.ItemBatch;
 import com.mobiquity.exception.APIException;
+import com.mobiquity.packer.Packer;
+import com.mobiquity.solver.SolverSelector;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
@@ -143,4 +146,16 @@ class AlgoUtilsTest {
                         i -> i.size() < maxItemAmountTotest));
         assertThat(exception.getMessage()).isEqualTo("Max Item amount exceeded.");
     }
+
+    @Test
+    void readBatchWithPackerLimits() throws APIException {
+        ItemBatch batch = new ItemBatch();
+        AlgoUtils.readBatch(firstLineToTest, batch,
+                Packer.validateMaxWeight(),
+                Packer.validateMaxPrice(),
+                Packer.validateMaxAmount());
+        assertThat(batch.size()).isEqualTo(6);
+        assertThat(batch.capacity()).isEqualTo(8100);
+        assertThat(AlgoUtils.listIndexes(batch, new SolverSelector().solve(batch))).isEqualTo("4");
+    }
 }
\ No newline at end of file
@@ -0,0 +1,74 @@
+package com.mobiquity.utils;
+
+import com.mobiquity.exception.APIException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+class LineParserTest {
+    final String lineToTest = "81 : (1,53.38,€45) (2,88.62,€98.5) (3,78.481,€3)";
+
+    @Test
+    void parseCharacters() throws APIException {
+        assertThat(collect(lineToTest)).containsExactly(
+                "capacity 81/0",
+                "item 1 5338/2 45/0",
+                "item 2 8862/2 985/1",
+                "item 3 78481/3 3/0");
+    }
+
+    @Test
+    void parseBytes() throws APIException {
+        byte[] bytes = ("xx" + lineToTest + "\r\nyy").getBytes(StandardCharsets.UTF_8);
+        List<String> values = new ArrayList<>();
+        LineParser.parse(bytes, 2, bytes.length - 2, sink(values));
+        assertThat(values).isEqualTo(collect(lineToTest));
+    }
+
+    @Test
+    void parseLineWithoutItems() throws APIException {
+        assertThat(collect("8 :")).containsExactly("capacity 8/0");
+    }
+
+    @Test
+    void rejectMalformedLines() {
+        assertThat(malformed("")).isEqualTo("Malformed line: expected package weight at position 0.");
+        assertThat(malformed("81 (1,53.38,€45)")).isEqualTo("Malformed line: expected ':' at position 3.");
+        assertThat(malformed("81 : (1.5,53.38,€45)")).isEqualTo("Malformed line: expected integer item index at position 9.");
+        assertThat(malformed("81 : (1,53.38,45)")).isEqualTo("Malformed line: expected '€' at position 14.");
+        assertThat(malformed("81 : (1,53.,€45)")).isEqualTo("Malformed line: expected item weight at position 11.");
+        assertThat(malformed("81 : (1,53.38,€45")).isEqualTo("Malformed line: expected ')' at position 17.");
+    }
+
+    static String malformed(String line) {
+        return assertThrows(APIException.class, () -> collect(line)).getMessage();
+    }
+
+    static List<String> collect(String line) throws APIException {
+        List<String> values = new ArrayList<>();
+        LineParser.parse(line, sink(values));
+        return values;
+    }
+
+    static LineParser.LineSink sink(List<String> values) {
+        return new LineParser.LineSink() {
+            @Override
+            public void capacity(long weight, int weightScale) {
+                values.add("capacity " + weight + "/" + weightScale);
+            }
+
+            @Override
+            public void item(int index, long weight, int weightScale, long price, int priceScale) {
+                values.add("item " + index + " " + weight + "/" + weightScale + " " + price + "/" + priceScale);
+            }
+        };
+    }
+}
@@ -0,0 +1,162 @@
+package com.mobiquity.utils;
+
+import com.mobiquity.exception.APIException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+class OrderedPipelineTest {
+    static String lines = IntStream.range(0, 500).mapToObj(String::valueOf).collect(Collectors.joining("\n"));
+
+    @Test
+    void keepInputOrder() throws APIException, IOException {
+        List<String> results = new ArrayList<>();
+        OrderedPipeline.readLines(new BufferedReader(new StringReader(lines)), s -> {
+            if (ThreadLocalRandom.current().nextInt(10) == 0) {
+                LockSupport.parkNanos(1_000_000);
+            }
+            return s + "test";
+        }, results::add, 4, 8);
+        assertThat(results).hasSize(500);
+        assertThat(results.get(0)).isEqualTo("0test");
+        assertThat(results.get(499)).isEqualTo("499test");
+        assertThat(results).isSortedAccordingTo((a, b) -> Integer.compare(
+                Integer.parseInt(a.replace("test", "")), Integer.parseInt(b.replace("test", ""))));
+    }
+
+    @Test
+    void failOnFirstInvalidLineInOrder() {
+        List<String> results = new ArrayList<>();
+        APIException exception = assertThrows(APIException.class,
+                () -> OrderedPipeline.readLines(new BufferedReader(new StringReader(lines)), s -> {
+                    if (Integer.parseInt(s) % 100 == 42) {
+                        throw new APIException("Invalid " + s);
+                    }
+                    return s;
+                }, results::add, 3, 16));
+        assertThat(exception.getMessage()).isEqualTo("Invalid 42");
+        assertThat(results).hasSize(42);
+    }
+
+    @Test
+    @Timeout(10)
+    void rethrowWorkerError() {
+        List<String> results = new ArrayList<>();
+        AssertionError error = assertThrows(AssertionError.class,
+                () -> OrderedPipeline.readLines(new BufferedReader(new StringReader("1\n2\n3")), s -> {
+                    if (s.equals("2")) {
+                        throw new AssertionError("Broken " + s);
+                    }
+                    return s;
+                }, results::add, 2, 4, (line, e) -> "-"));
+        assertThat(error.getMessage()).isEqualTo("Broken 2");
+        assertThat(results).containsExactly("1");
+    }
+
+    @Test
+    @Timeout(10)
+    void rethrowReaderFailure() {
+        BufferedReader reader = new BufferedReader(new StringReader(lines)) {
+            private int read;
+
+            @Override
+            public String readLine() throws IOException {
+                if (++read == 5) {
+                    throw new IllegalStateException("Broken reader");
+                }
+                return super.readLine();
+            }
+        };
+        List<String> results = new ArrayList<>();
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> OrderedPipeline.readLines(reader, s -> s, results::add, 2, 4));
+        assertThat(exception.getMessage()).isEqualTo("Broken reader");
+        assertThat(results).hasSize(4);
+    }
+
+    @Test
+    @Timeout(10)
+    void wrapUndeclaredCheckedFailure() {
+        UndeclaredThrowableException exception = assertThrows(UndeclaredThrowableException.class,
+                () -> OrderedPipeline.readLines(new BufferedReader(new StringReader("1\n2")), s -> {
+                    throw OrderedPipelineTest.<RuntimeException>sneaky(new IOException("Hidden " + s));
+                }, result -> {
+                }, 2, 4));
+        assertThat(exception.getCause()).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void runOnGivenExecutor() throws APIException, IOException {
+        AtomicInteger executed = new AtomicInteger();
+        List<String> results = new ArrayList<>();
+        OrderedPipeline.readLines(new BufferedReader(new StringReader(lines)), s -> s, results::add, 3, 8, null,
+                task -> {
+                    executed.incrementAndGet();
+                    Workers.shared().execute(task);
+                });
+        assertThat(executed.get()).isEqualTo(4);
+        assertThat(results).hasSize(500);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T extends Throwable> T sneaky(Throwable e) throws T {
+        throw (T) e;
+    }
+
+    @Test
+    void stopConvertingAfterFailure() {
+        AtomicInteger converted = new AtomicInteger();
+        assertThrows(APIException.class,
+                () -> OrderedPipeline.readLines(new BufferedReader(new StringReader(lines)), s -> {
+                    converted.incrementAndGet();
+                    if (s.equals("3")) {
+                        throw new APIException("Invalid " + s);
+                    }
+                    return s;
+                }, result -> {
+                }, 2, 8));
+        assertThat(converted.get()).isLessThan(50);
+    }
+
+    @Test
+    void replaceFailedLinesInOrder() throws APIException, IOException {
+        List<String> results = new ArrayList<>();
+        List<Long> failed = new ArrayList<>();
+        OrderedPipeline.readLines(new BufferedReader(new StringReader(lines)), s -> {
+            if (Integer.parseInt(s) % 100 == 42) {
+                throw new APIException("Invalid " + s);
+            }
+            return s;
+        }, results::add, 3, 16, (number, e) -> {
+            failed.add(number);
+            return "!";
+        });
+        assertThat(results).hasSize(500);
+        assertThat(results.get(42)).isEqualTo("!");
+        assertThat(failed).containsExactly(43L, 143L, 243L, 343L, 443L);
+    }
+
+    @Test
+    void handleEmptyInput() throws APIException, IOException {
+        List<String> results = new ArrayList<>();
+        OrderedPipeline.readLines(new BufferedReader(new StringReader("")), s -> s, results::add, 2, 2);
+        assertThat(results).isEmpty();
+    }
+}
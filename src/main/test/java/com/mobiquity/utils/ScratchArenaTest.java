@@ -0,0 +1,80 @@
+package com.mobiquity.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.LongBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Andrei Alekseenko <paintkeeper at gmail.com>
+ */
+class ScratchArenaTest {
+    private static final ScratchArena.Slot FIRST = ScratchArena.slot("test.first");
+    private static final ScratchArena.Slot SECOND = ScratchArena.slot("test.second");
+    private static final ScratchArena.Slot OBJECT = ScratchArena.slot("test.object");
+
+    @Test
+    void reuseSlotUpToLargestLength() {
+        ScratchArena arena = new ScratchArena(1 << 20);
+        long[] longs = arena.longs(FIRST, 100);
+        assertThat(longs.length).isGreaterThanOrEqualTo(100);
+        assertThat(arena.longs(FIRST, 10)).isSameAs(longs);
+        assertThat(arena.longs(FIRST, 1000)).isNotSameAs(longs).hasSizeGreaterThanOrEqualTo(1000);
+        assertThat(arena.ints(SECOND, 10)).isSameAs(arena.ints(SECOND, 5));
+        assertThat(arena.retainedBytes()).isGreaterThanOrEqualTo(1000L * Long.BYTES + 10L * Integer.BYTES);
+    }
+
+    @Test
+    void keepSlotsApart() {
+        ScratchArena arena = new ScratchArena(1 << 20);
+        assertThat(arena.longs(FIRST, 10)).isNotSameAs(arena.longs(SECOND, 10));
+        StringBuilder kept = arena.object(OBJECT, StringBuilder::new);
+        assertThat(arena.<StringBuilder>object(OBJECT, StringBuilder::new)).isSameAs(kept);
+    }
+
+    @Test
+    void dropMemoryOverCap() {
+        ScratchArena arena = new ScratchArena(800);
+        long[] kept = arena.longs(FIRST, 50);
+        long[] transient1 = arena.longs(SECOND, 100);
+        long[] transient2 = arena.longs(SECOND, 100);
+        assertThat(transient1).hasSize(100).isNotSameAs(transient2);
+        assertThat(arena.longs(FIRST, 50)).isSameAs(kept);
+        assertThat(arena.retainedBytes()).isEqualTo(400);
+    }
+
+    @Test
+    void borrowDirectLongs() {
+        ScratchArena arena = new ScratchArena(1 << 20);
+        LongBuffer buffer = arena.directLongs(FIRST, 100);
+        assertThat(buffer.isDirect()).isTrue();
+        assertThat(buffer.position()).isZero();
+        assertThat(buffer.limit()).isEqualTo(100);
+        buffer.put(99, 7);
+        LongBuffer again = arena.directLongs(FIRST, 50);
+        assertThat(again).isSameAs(buffer);
+        assertThat(again.limit()).isEqualTo(50);
+        assertThat(ScratchArena.offHeap(ScratchArena.OFF_HEAP_BYTES / Long.BYTES)).isFalse();
+        assertThat(ScratchArena.offHeap(ScratchArena.OFF_HEAP_BYTES / Long.BYTES + 1)).isTrue();
+    }
+
+    @Test
+    void releaseEverything() {
+        ScratchArena arena = new ScratchArena(1 << 20);
+        long[] longs = arena.longs(FIRST, 100);
+        arena.directLongs(SECOND, 100);
+        arena.release();
+        assertThat(arena.retainedBytes()).isZero();
+        assertThat(arena.longs(FIRST, 100)).isNotSameAs(longs);
+    }
+
+    @Test
+    void keepArenaPerThread() throws InterruptedException {
+        ScratchArena[] other = new ScratchArena[1];
+        Thread thread = new Thread(() -> other[0] = ScratchArena.get());
+        thread.start();
+        thread.join();
+        assertThat(ScratchArena.get()).isSameAs(ScratchArena.get()).isNotSameAs(other[0]);
+    }
+}